@@ -0,0 +1,81 @@
+package io.roach.data.bench;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Base class for the account transfer benchmarks. Each data access variant implements
+ * the same transfer as the demo modules: a locking read of the source balance followed
+ * by a debit and a credit update, in one transaction.
+ * <p>
+ * Throughput and sampled latency (including p99) are reported for each variant. Add
+ * {@code -prof gc} to the JMH command line for the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public abstract class AbstractTransferBenchmark {
+    protected static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param("100")
+    public int accounts;
+
+    protected HikariDataSource dataSource;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception {
+        dataSource = BenchmarkSupport.createDataSource();
+        BenchmarkSupport.setupSchema(dataSource, accounts);
+        setup();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws Exception {
+        tearDown();
+        dataSource.close();
+    }
+
+    protected void setup() throws Exception {
+    }
+
+    protected void tearDown() throws Exception {
+    }
+
+    protected abstract void transfer(long fromId, long toId, BigDecimal amount) throws Exception;
+
+    @Benchmark
+    public void transferFunds() throws Exception {
+        final long fromId = ThreadLocalRandom.current().nextInt(accounts) + 1;
+        final long toId = fromId % accounts + 1;
+        BenchmarkSupport.retry(() -> {
+            transfer(fromId, toId, AMOUNT);
+            return null;
+        });
+    }
+
+    protected static void checkBalance(long id, BigDecimal balance, BigDecimal amount) {
+        if (balance.compareTo(amount) < 0) {
+            throw new IllegalStateException("Insufficient funds " + amount + " for account " + id);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.roach.data.bench;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Account entity for the JPA benchmark.
+ */
+@Entity
+@Table(name = "account")
+public class Account {
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    public Long getId() {
+        return id;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+}
@@ -0,0 +1,97 @@
+package io.roach.data.bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.r2dbc.spi.R2dbcException;
+
+/**
+ * Shared benchmark configuration and schema setup. Connection settings are passed
+ * as system properties, which JMH propagates to forked JVMs.
+ */
+public final class BenchmarkSupport {
+    public static final String JDBC_URL = System.getProperty("bench.url",
+            "jdbc:postgresql://localhost:26257/roach_bench?sslmode=disable");
+
+    public static final String R2DBC_URL = System.getProperty("bench.r2dbc-url",
+            "r2dbc:pool:postgresql://root@localhost:26257/roach_bench?sslmode=disable");
+
+    public static final String USER = System.getProperty("bench.user", "root");
+
+    public static final String PASSWORD = System.getProperty("bench.password", "");
+
+    public static final int POOL_SIZE = Integer.getInteger("bench.pool-size", 16);
+
+    private static final int MAX_ATTEMPTS = 10;
+
+    private BenchmarkSupport() {
+    }
+
+    public static HikariDataSource createDataSource() {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl(JDBC_URL);
+        ds.setUsername(USER);
+        ds.setPassword(PASSWORD);
+        ds.setMaximumPoolSize(POOL_SIZE);
+        ds.setMinimumIdle(POOL_SIZE);
+        ds.addDataSourceProperty("ApplicationName", "roach-data-bench");
+        return ds;
+    }
+
+    /**
+     * Create the account table if needed and reset the balance of accounts 1..n.
+     */
+    public static void setupSchema(DataSource ds, int accounts) throws SQLException {
+        try (Connection conn = ds.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS account ("
+                        + "id int not null primary key, "
+                        + "balance numeric(19, 2) not null, "
+                        + "name varchar(128) not null, "
+                        + "type varchar(25) not null, "
+                        + "updated timestamptz not null default clock_timestamp())");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO account (id, balance, name, type) "
+                    + "SELECT i, 1000000.00, concat('bench:', i), 'asset' FROM generate_series(1, ?) AS i "
+                    + "ON CONFLICT (id) DO UPDATE SET balance = excluded.balance")) {
+                ps.setInt(1, accounts);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Retry the given action on serialization failures (40001), which are expected
+     * when running with multiple benchmark threads.
+     */
+    public static <T> T retry(Callable<T> action) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.call();
+            } catch (Exception e) {
+                if (attempt >= MAX_ATTEMPTS || !isSerializationFailure(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static boolean isSerializationFailure(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SQLException && "40001".equals(((SQLException) t).getSQLState())) {
+                return true;
+            }
+            if (t instanceof R2dbcException && "40001".equals(((R2dbcException) t).getSqlState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+package io.roach.data.bench;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Plain JDBC, as in roach-data-jdbc-plain.
+ */
+public class JdbcTransferBenchmark extends AbstractTransferBenchmark {
+    @Override
+    protected void transfer(long fromId, long toId, BigDecimal amount) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                checkBalance(fromId, readBalance(conn, fromId), amount);
+                updateBalance(conn, fromId, amount.negate());
+                updateBalance(conn, toId, amount);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static BigDecimal readBalance(Connection conn, long id) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT balance FROM account WHERE id = ? FOR UPDATE")) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalStateException("No such account: " + id);
+                }
+                return rs.getBigDecimal(1);
+            }
+        }
+    }
+
+    private static void updateBalance(Connection conn, long id, BigDecimal amount) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE account SET balance = balance + ? WHERE id = ?")) {
+            ps.setBigDecimal(1, amount);
+            ps.setLong(2, id);
+            ps.executeUpdate();
+        }
+    }
+}
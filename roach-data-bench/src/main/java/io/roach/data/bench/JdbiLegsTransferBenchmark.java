@@ -0,0 +1,130 @@
+package io.roach.data.bench;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.transaction.SerializableTransactionRunner;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Multi-leg transfer as in roach-data-jdbi, comparing a new Jdbi instance per transfer with
+ * one read and one update per leg ('per-transfer') to a shared Jdbi instance with a SQL Object
+ * DAO writing all legs with one batch ('shared-dao').
+ * Use {@code -prof gc} for the allocation rate per transfer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class JdbiLegsTransferBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    public interface AccountDao {
+        @SqlBatch("UPDATE account SET balance = balance + :amount WHERE name = :name")
+        int[] updateBalances(@Bind("name") Collection<String> names, @Bind("amount") Collection<BigDecimal> amounts);
+    }
+
+    @Param({"per-transfer", "shared-dao"})
+    public String strategy;
+
+    @Param("100")
+    public int accounts;
+
+    @Param("4")
+    public int legPairs;
+
+    private HikariDataSource dataSource;
+
+    private Jdbi jdbi;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception {
+        dataSource = BenchmarkSupport.createDataSource();
+        BenchmarkSupport.setupSchema(dataSource, accounts);
+
+        jdbi = Jdbi.create(dataSource);
+        jdbi.installPlugin(new SqlObjectPlugin());
+        jdbi.setTransactionHandler(new SerializableTransactionRunner());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void transferLegs() throws Exception {
+        final Map<String, BigDecimal> legs = new TreeMap<>();
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < legPairs; i++) {
+            long fromId = random.nextInt(accounts) + 1;
+            long toId = fromId % accounts + 1;
+            legs.merge("bench:" + fromId, AMOUNT.negate(), BigDecimal::add);
+            legs.merge("bench:" + toId, AMOUNT, BigDecimal::add);
+        }
+
+        BenchmarkSupport.retry(() -> {
+            if ("per-transfer".equals(strategy)) {
+                transferPerLeg(legs);
+            } else {
+                transferSharedDao(legs);
+            }
+            return null;
+        });
+    }
+
+    private void transferPerLeg(Map<String, BigDecimal> legs) {
+        Jdbi perTransfer = Jdbi.create(dataSource);
+        perTransfer.setTransactionHandler(new SerializableTransactionRunner());
+        perTransfer.useTransaction(handle -> legs.forEach((name, amount) -> {
+            BigDecimal balance = readBalance(handle, name);
+            handle.createUpdate("UPDATE account SET balance = ? WHERE name = ?")
+                    .bind(0, balance.add(amount))
+                    .bind(1, name)
+                    .execute();
+        }));
+    }
+
+    private void transferSharedDao(Map<String, BigDecimal> legs) {
+        jdbi.useTransaction(handle -> {
+            AccountDao accountDao = handle.attach(AccountDao.class);
+            int[] rowsAffected = accountDao.updateBalances(legs.keySet(), legs.values());
+            if (Arrays.stream(rowsAffected).anyMatch(rows -> rows != 1)) {
+                throw new IllegalStateException("Rows affected != 1");
+            }
+        });
+    }
+
+    private static BigDecimal readBalance(Handle handle, String name) {
+        return handle.createQuery("SELECT balance FROM account WHERE name = ?")
+                .bind(0, name)
+                .mapTo(BigDecimal.class)
+                .one();
+    }
+}
@@ -0,0 +1,36 @@
+package io.roach.data.bench;
+
+import java.math.BigDecimal;
+
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * JDBI fluent API, as in roach-data-jdbi.
+ */
+public class JdbiTransferBenchmark extends AbstractTransferBenchmark {
+    private Jdbi jdbi;
+
+    @Override
+    protected void setup() {
+        jdbi = Jdbi.create(dataSource);
+    }
+
+    @Override
+    protected void transfer(long fromId, long toId, BigDecimal amount) {
+        jdbi.useTransaction(handle -> {
+            BigDecimal balance = handle.createQuery("SELECT balance FROM account WHERE id = ? FOR UPDATE")
+                    .bind(0, fromId)
+                    .mapTo(BigDecimal.class)
+                    .one();
+            checkBalance(fromId, balance, amount);
+            handle.createUpdate("UPDATE account SET balance = balance + ? WHERE id = ?")
+                    .bind(0, amount.negate())
+                    .bind(1, fromId)
+                    .execute();
+            handle.createUpdate("UPDATE account SET balance = balance + ? WHERE id = ?")
+                    .bind(0, amount)
+                    .bind(1, toId)
+                    .execute();
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package io.roach.data.bench;
+
+import java.math.BigDecimal;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+
+/**
+ * jOOQ DSL, as in roach-data-jooq but without generated classes.
+ */
+public class JooqTransferBenchmark extends AbstractTransferBenchmark {
+    private static final Table<?> ACCOUNT = DSL.table("account");
+
+    private static final Field<Long> ID = DSL.field("id", Long.class);
+
+    private static final Field<BigDecimal> BALANCE = DSL.field("balance", BigDecimal.class);
+
+    private DSLContext dsl;
+
+    @Override
+    protected void setup() {
+        dsl = DSL.using(dataSource, SQLDialect.POSTGRES);
+    }
+
+    @Override
+    protected void transfer(long fromId, long toId, BigDecimal amount) {
+        dsl.transaction(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            BigDecimal balance = tx.select(BALANCE)
+                    .from(ACCOUNT)
+                    .where(ID.eq(fromId))
+                    .forUpdate()
+                    .fetchOne(BALANCE);
+            checkBalance(fromId, balance, amount);
+            tx.update(ACCOUNT)
+                    .set(BALANCE, BALANCE.plus(amount.negate()))
+                    .where(ID.eq(fromId))
+                    .execute();
+            tx.update(ACCOUNT)
+                    .set(BALANCE, BALANCE.plus(amount))
+                    .where(ID.eq(toId))
+                    .execute();
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package io.roach.data.bench;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibernate.LockMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+
+/**
+ * JPA with Hibernate as provider, as in roach-data-jpa. Entities are loaded with a
+ * pessimistic lock and updated through dirty checking on flush.
+ */
+public class JpaTransferBenchmark extends AbstractTransferBenchmark {
+    private StandardServiceRegistry registry;
+
+    private SessionFactory sessionFactory;
+
+    @Override
+    protected void setup() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AvailableSettings.DATASOURCE, dataSource);
+        settings.put(AvailableSettings.DIALECT, "org.hibernate.dialect.PostgreSQL95Dialect");
+
+        registry = new StandardServiceRegistryBuilder().applySettings(settings).build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Account.class)
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+
+    @Override
+    protected void tearDown() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    @Override
+    protected void transfer(long fromId, long toId, BigDecimal amount) {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                Account from = session.get(Account.class, fromId, LockMode.PESSIMISTIC_WRITE);
+                Account to = session.get(Account.class, toId);
+                checkBalance(fromId, from.getBalance(), amount);
+                from.setBalance(from.getBalance().subtract(amount));
+                to.setBalance(to.getBalance().add(amount));
+                tx.commit();
+            } catch (RuntimeException e) {
+                tx.rollback();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.roach.data.bench;
+
+import java.math.BigDecimal;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+
+/**
+ * MyBatis annotated mapper, as in roach-data-mybatis.
+ */
+public class MyBatisTransferBenchmark extends AbstractTransferBenchmark {
+    public interface AccountMapper {
+        @Select("SELECT balance FROM account WHERE id = #{id} FOR UPDATE")
+        BigDecimal getBalance(@Param("id") long id);
+
+        @Update("UPDATE account SET balance = balance + #{amount} WHERE id = #{id}")
+        int updateBalance(@Param("id") long id, @Param("amount") BigDecimal amount);
+    }
+
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Override
+    protected void setup() {
+        Configuration configuration = new Configuration(
+                new Environment("bench", new JdbcTransactionFactory(), dataSource));
+        configuration.addMapper(AccountMapper.class);
+        sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    @Override
+    protected void transfer(long fromId, long toId, BigDecimal amount) {
+        // Rolled back on close unless committed
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            AccountMapper mapper = session.getMapper(AccountMapper.class);
+            checkBalance(fromId, mapper.getBalance(fromId), amount);
+            mapper.updateBalance(fromId, amount.negate());
+            mapper.updateBalance(toId, amount);
+            session.commit();
+        }
+    }
+}
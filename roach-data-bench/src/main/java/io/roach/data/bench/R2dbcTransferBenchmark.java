@@ -0,0 +1,61 @@
+package io.roach.data.bench;
+
+import java.math.BigDecimal;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC with the reactive PostgreSQL driver, as in roach-data-reactive. Each transfer
+ * is blocked on to measure it the same way as the JDBC variants.
+ */
+public class R2dbcTransferBenchmark extends AbstractTransferBenchmark {
+    private ConnectionFactory connectionFactory;
+
+    @Override
+    protected void setup() {
+        connectionFactory = ConnectionFactories.get(BenchmarkSupport.R2DBC_URL);
+    }
+
+    @Override
+    protected void tearDown() {
+        if (connectionFactory instanceof ConnectionPool) {
+            ((ConnectionPool) connectionFactory).dispose();
+        }
+    }
+
+    @Override
+    protected void transfer(long fromId, long toId, BigDecimal amount) {
+        Mono.usingWhen(connectionFactory.create(),
+                conn -> Mono.from(conn.beginTransaction())
+                        .then(readBalance(conn, fromId))
+                        .flatMap(balance -> {
+                            checkBalance(fromId, balance, amount);
+                            return updateBalance(conn, fromId, amount.negate())
+                                    .then(updateBalance(conn, toId, amount));
+                        })
+                        .then(Mono.from(conn.commitTransaction()))
+                        .onErrorResume(e -> Mono.from(conn.rollbackTransaction()).then(Mono.error(e))),
+                Connection::close)
+                .block();
+    }
+
+    private static Mono<BigDecimal> readBalance(Connection conn, long id) {
+        return Mono.from(conn.createStatement("SELECT balance FROM account WHERE id = $1 FOR UPDATE")
+                        .bind(0, id)
+                        .execute())
+                .flatMap(result -> Mono.from(result.map((row, metadata) -> row.get(0, BigDecimal.class))));
+    }
+
+    private static Mono<Long> updateBalance(Connection conn, long id, BigDecimal amount) {
+        return Mono.from(conn.createStatement("UPDATE account SET balance = balance + $1 WHERE id = $2")
+                        .bind(0, amount)
+                        .bind(1, id)
+                        .execute())
+                .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                .map(Number::longValue);
+    }
+}
@@ -0,0 +1,34 @@
+package io.roach.data.bench;
+
+import java.math.BigDecimal;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Spring JdbcTemplate with programmatic transactions, which is what spring-data-jdbc
+ * query methods (roach-data-jdbc, roach-data-relational) delegate to.
+ */
+public class SpringJdbcTransferBenchmark extends AbstractTransferBenchmark {
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    protected void setup() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Override
+    protected void transfer(long fromId, long toId, BigDecimal amount) {
+        transactionTemplate.executeWithoutResult(status -> {
+            BigDecimal balance = jdbcTemplate.queryForObject(
+                    "SELECT balance FROM account WHERE id = ? FOR UPDATE", BigDecimal.class, fromId);
+            checkBalance(fromId, balance, amount);
+            jdbcTemplate.update("UPDATE account SET balance = balance + ? WHERE id = ?", amount.negate(), fromId);
+            jdbcTemplate.update("UPDATE account SET balance = balance + ? WHERE id = ?", amount, toId);
+        });
+    }
+}
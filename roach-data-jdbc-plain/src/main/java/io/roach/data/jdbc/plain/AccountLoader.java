@@ -0,0 +1,174 @@
+package io.roach.data.jdbc.plain;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bulk loader for 'customer:N' accounts using COPY FROM STDIN. Rows are generated
+ * on the fly while streaming, so memory use is independent of the account count.
+ * The rows are copied in chunks to keep each implicit transaction reasonably sized.
+ */
+public class AccountLoader {
+    public enum BalanceDistribution {
+        /**
+         * Same balance for all accounts
+         */
+        FIXED,
+        /**
+         * Uniform between zero and twice the balance
+         */
+        UNIFORM,
+        /**
+         * Long tail where most accounts are below the balance and a few far above
+         * (Pareto with alpha 1.16, the 80/20 rule)
+         */
+        PARETO
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountLoader.class);
+
+    private int count = 100;
+
+    private BigDecimal balance = new BigDecimal("5000.00");
+
+    private BalanceDistribution distribution = BalanceDistribution.FIXED;
+
+    private int chunkSize = 50_000;
+
+    public AccountLoader setCount(int count) {
+        this.count = count;
+        return this;
+    }
+
+    public AccountLoader setBalance(BigDecimal balance) {
+        this.balance = balance;
+        return this;
+    }
+
+    public AccountLoader setDistribution(BalanceDistribution distribution) {
+        this.distribution = distribution;
+        return this;
+    }
+
+    public AccountLoader setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Replace all accounts with generated ones.
+     *
+     * @return number of rows loaded
+     */
+    public long load(DataSource ds) {
+        final Supplier<BigDecimal> balanceSupplier = balanceSupplier();
+        final long startTime = System.nanoTime();
+
+        long rows = ConnectionTemplate.execute(ds, conn -> {
+            conn.setAutoCommit(true);
+
+            try (Statement statement = conn.createStatement()) {
+                statement.execute("TRUNCATE TABLE account");
+            }
+
+            CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+
+            long total = 0;
+            for (int first = 1; first <= count; first += chunkSize) {
+                int last = (int) Math.min(count, (long) first + chunkSize - 1);
+                try {
+                    total += copyManager.copyIn("COPY account (id, balance, name) FROM STDIN",
+                            new AccountRowReader(first, last, balanceSupplier));
+                } catch (IOException e) {
+                    throw new DataAccessException("Error streaming account rows", e);
+                }
+                logger.debug("Copied {}/{} accounts", last, count);
+            }
+            return total;
+        });
+
+        double elapsedSeconds = (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        logger.info("Loaded {} accounts in {} s ({} rows/s)", rows,
+                String.format("%.1f", elapsedSeconds),
+                String.format("%.0f", rows / elapsedSeconds));
+
+        return rows;
+    }
+
+    private Supplier<BigDecimal> balanceSupplier() {
+        switch (distribution) {
+            case UNIFORM:
+                return () -> balance.multiply(BigDecimal.valueOf(ThreadLocalRandom.current().nextDouble(2)))
+                        .setScale(2, RoundingMode.HALF_EVEN);
+            case PARETO:
+                // Scaled so that the mean equals the balance
+                final double alpha = 1.16;
+                final double scale = (alpha - 1) / alpha;
+                return () -> {
+                    double u = 1 - ThreadLocalRandom.current().nextDouble();
+                    return balance.multiply(BigDecimal.valueOf(scale / Math.pow(u, 1 / alpha)))
+                            .setScale(2, RoundingMode.HALF_EVEN);
+                };
+            default:
+                return () -> balance;
+        }
+    }
+
+    /**
+     * Reader producing rows in COPY text format (tab separated) for a range of ids.
+     */
+    private static class AccountRowReader extends Reader {
+        private final Supplier<BigDecimal> balanceSupplier;
+
+        private final int last;
+
+        private int next;
+
+        private final StringBuilder line = new StringBuilder();
+
+        private int position;
+
+        AccountRowReader(int first, int last, Supplier<BigDecimal> balanceSupplier) {
+            this.next = first;
+            this.last = last;
+            this.balanceSupplier = balanceSupplier;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) {
+            if (position == line.length()) {
+                if (next > last) {
+                    return -1;
+                }
+                line.setLength(0);
+                line.append(next).append('\t')
+                        .append(balanceSupplier.get().toPlainString()).append('\t')
+                        .append("customer:").append(next).append('\n');
+                position = 0;
+                next++;
+            }
+            int n = Math.min(len, line.length() - position);
+            line.getChars(position, position + n, buf, off);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
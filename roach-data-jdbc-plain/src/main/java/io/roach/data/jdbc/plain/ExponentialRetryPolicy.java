@@ -0,0 +1,76 @@
+package io.roach.data.jdbc.plain;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy with capped exponential backoff and full jitter, retrying serialization
+ * failures (40001) by default.
+ */
+public class ExponentialRetryPolicy implements RetryPolicy {
+    private int maxAttempts = 10;
+
+    private Duration deadline = Duration.ofSeconds(30);
+
+    private long baseBackoffMillis = 50;
+
+    private long maxBackoffMillis = 5000;
+
+    private Set<String> retryableStates = Set.of("40001");
+
+    private boolean savepointRetry;
+
+    public ExponentialRetryPolicy setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    public ExponentialRetryPolicy setDeadline(Duration deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    public ExponentialRetryPolicy setBackoff(long baseBackoffMillis, long maxBackoffMillis) {
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        return this;
+    }
+
+    public ExponentialRetryPolicy setRetryableStates(Set<String> retryableStates) {
+        this.retryableStates = retryableStates;
+        return this;
+    }
+
+    public ExponentialRetryPolicy setSavepointRetry(boolean savepointRetry) {
+        this.savepointRetry = savepointRetry;
+        return this;
+    }
+
+    @Override
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @Override
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    @Override
+    public boolean isRetryable(SQLException ex) {
+        return retryableStates.contains(ex.getSQLState());
+    }
+
+    @Override
+    public boolean isSavepointRetry() {
+        return savepointRetry;
+    }
+}
@@ -5,16 +5,16 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayDeque;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 
 import javax.sql.DataSource;
@@ -23,6 +23,9 @@ import com.zaxxer.hikari.HikariDataSource;
 
 import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
 
+import io.roach.data.support.CompletionAggregator;
+import io.roach.data.support.InvariantChecker;
+
 public class PlainJdbcApplication {
     private static class BusinessException extends RuntimeException {
         public BusinessException(String message) {
@@ -52,16 +55,62 @@ public class PlainJdbcApplication {
         };
     }
 
-    private static List<String> readAccountNames(Connection conn) throws SQLException {
-        List<String> names = new ArrayList<>();
-        try (PreparedStatement ps = conn.prepareStatement("SELECT name FROM account")) {
+    /**
+     * Alternative to {@link #transfer(List)} that nets the legs per account and then writes
+     * all accounts with a single statement, rather than one read and one write per leg.
+     * Accounts are written in name order to keep a consistent lock order.
+     */
+    private static TransactionCallback<BigDecimal> transferSingleStatement(List<Account> legs) {
+        return conn -> {
+            BigDecimal total = BigDecimal.ZERO;
+            BigDecimal checksum = BigDecimal.ZERO;
+
+            Map<String, BigDecimal> deltas = new TreeMap<>();
+
+            for (Account leg : legs) {
+                deltas.merge(leg.name, leg.amount, BigDecimal::add);
+                checksum = checksum.add(leg.amount);
+                total = total.add(leg.amount.abs());
+            }
+
+            if (checksum.compareTo(BigDecimal.ZERO) != 0) {
+                throw new BusinessException(
+                        "Sum of account legs must equal 0 (got " + checksum.toPlainString() + ")"
+                );
+            }
+
+            // Missing accounts are detected by the update count
+            updateBalances(conn, deltas);
+
+            return total;
+        };
+    }
+
+    private static void updateBalances(Connection conn, Map<String, BigDecimal> deltas) throws SQLException {
+        // Arrays rather than a VALUES list to keep the SQL (and cached statement) independent of the leg count
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE account SET balance = account.balance + v.delta, updated=clock_timestamp() "
+                        + "FROM unnest(?::varchar[], ?::numeric[]) AS v(name, delta) "
+                        + "WHERE account.name = v.name")) {
+            ps.setArray(1, conn.createArrayOf("varchar", deltas.keySet().toArray()));
+            ps.setArray(2, conn.createArrayOf("numeric", deltas.values().toArray()));
+            if (ps.executeUpdate() != deltas.size()) {
+                throw new BusinessException("Account not found among " + deltas.keySet());
+            }
+        }
+    }
+
+    private static Void printBalances(Connection conn, String label) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT name, balance FROM account ORDER BY id")) {
+            // Streamed in chunks rather than buffered (requires an explicit transaction)
+            ps.setFetchSize(1024);
             try (ResultSet res = ps.executeQuery()) {
                 while (res.next()) {
-                    names.add(res.getString(1));
+                    System.out.printf("Balance %s for %s: %s\n", label, res.getString(1), res.getBigDecimal(2));
                 }
             }
         }
-        return names;
+        return null;
     }
 
     private static BigDecimal readBalance(Connection conn, String name) throws SQLException {
@@ -78,9 +127,8 @@ public class PlainJdbcApplication {
     }
 
     private static void updateBalance(Connection conn, String name, BigDecimal balance) throws SQLException {
-        try (PreparedStatement ps = conn
-                .prepareStatement(
-                        "UPDATE account SET balance = ?, updated=clock_timestamp() where name = ?")) {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE account SET balance = ?, updated=clock_timestamp() where name = ?")) {
             ps.setBigDecimal(1, balance);
             ps.setString(2, name);
             if (ps.executeUpdate() != 1) {
@@ -112,7 +160,41 @@ public class PlainJdbcApplication {
         hikariDS.setMaximumPoolSize(50);
         hikariDS.setMinimumIdle(5);
 
-        boolean enableProxy = Arrays.asList(args).contains("--enable-proxy");
+        boolean enableProxy = false;
+        boolean singleStatement = false;
+
+        final AccountLoader accountLoader = new AccountLoader();
+        int seedAccounts = 0;
+        Duration checkInterval = Duration.ofSeconds(5);
+
+        final ExponentialRetryPolicy retryPolicy = new ExponentialRetryPolicy()
+                .setSavepointRetry(true);
+
+        for (String arg : args) {
+            if (arg.equals("--enable-proxy")) {
+                enableProxy = true;
+            } else if (arg.equals("--single-statement")) {
+                singleStatement = true;
+            } else if (arg.startsWith("--max-attempts=")) {
+                retryPolicy.setMaxAttempts(Integer.parseInt(arg.split("=")[1]));
+            } else if (arg.startsWith("--deadline=")) {
+                retryPolicy.setDeadline(Duration.ofSeconds(Integer.parseInt(arg.split("=")[1])));
+            } else if (arg.startsWith("--check-interval=")) {
+                checkInterval = Duration.ofSeconds(Integer.parseInt(arg.split("=")[1]));
+            } else if (arg.startsWith("--seed-accounts=")) {
+                seedAccounts = Integer.parseInt(arg.split("=")[1]);
+            } else if (arg.startsWith("--seed-balance=")) {
+                accountLoader.setBalance(new BigDecimal(arg.split("=")[1]));
+            } else if (arg.startsWith("--seed-distribution=")) {
+                accountLoader.setDistribution(AccountLoader.BalanceDistribution.valueOf(arg.split("=")[1].toUpperCase(Locale.ROOT)));
+            } else if (arg.startsWith("--prepare-threshold=")) {
+                // Number of executions of a statement before using a server-side prepared statement
+                hikariDS.addDataSourceProperty("prepareThreshold", arg.split("=")[1]);
+            } else if (arg.startsWith("--statement-cache-queries=")) {
+                // Server-side prepared statements kept per connection, across statement close
+                hikariDS.addDataSourceProperty("preparedStatementCacheQueries", arg.split("=")[1]);
+            }
+        }
 
         DataSource ds = enableProxy ?
                 ProxyDataSourceBuilder
@@ -123,23 +205,29 @@ public class PlainJdbcApplication {
 
         SchemaSupport.setupSchema(ds);
 
-        ConnectionTemplate.execute(ds, PlainJdbcApplication::readAccountNames).forEach(name -> {
-            System.out.printf("Balance before for %s: %s\n", name,
-                    ConnectionTemplate.execute(ds, c -> readBalance(c, name)));
-        });
+        if (seedAccounts > 0) {
+            accountLoader.setCount(seedAccounts).load(ds);
+        }
+
+        ConnectionTemplate.execute(ds, c -> printBalances(c, "before"));
 
         final BigDecimal initialBalance = ConnectionTemplate.execute(ds, PlainJdbcApplication::readTotalBalance);
         System.out.printf("Total balance before: %s\n", initialBalance);
 
+        final InvariantChecker invariantChecker = new InvariantChecker(ds, initialBalance)
+                .start(checkInterval);
+
+        final boolean useSingleStatement = singleStatement;
+
         // Run concurrently for more existing effects
         final ExecutorService executorService = Executors.newFixedThreadPool(workers);
-        final Deque<Future<BigDecimal>> futures = new ArrayDeque<>();
+        final CompletionAggregator aggregator = new CompletionAggregator(executorService);
 
         final int iterations = 10;
-        final ThreadLocalRandom random = ThreadLocalRandom.current();
 
         IntStream.rangeClosed(1, iterations).forEach(
-                value -> futures.add(executorService.submit(() -> {
+                value -> aggregator.submit(() -> {
+                            final ThreadLocalRandom random = ThreadLocalRandom.current();
                             List<Account> legs = new ArrayList<>();
 
                             IntStream.rangeClosed(1, 4).forEach(leg -> {
@@ -152,48 +240,34 @@ public class PlainJdbcApplication {
                                 }
                             });
 
-                            System.out.printf("\r%,8d/%d", value, iterations);
-
-                            return TransactionTemplate.executeWithSavepointRetries(ds, transfer(legs));
+                            return TransactionTemplate.execute(ds, retryPolicy,
+                                    useSingleStatement ? transferSingleStatement(legs) : transfer(legs));
                         }
-                )));
-
-        int success = 0;
-        int fail = 0;
-        BigDecimal total = BigDecimal.ZERO;
-        while (!futures.isEmpty()) {
-            System.out.printf("Awaiting completion (%d futures)\n", futures.size());
-            try {
-                BigDecimal tot = futures.pop().get();
-                total = total.add(tot);
-                success++;
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (ExecutionException e) {
-                e.getCause().printStackTrace();
-                fail++;
-            }
-        }
+                ));
+
+        aggregator.awaitCompletion(1, TimeUnit.SECONDS);
 
         executorService.shutdownNow();
+        invariantChecker.close();
 
-        ConnectionTemplate.execute(ds, PlainJdbcApplication::readAccountNames).forEach(name -> {
-            System.out.printf("Balance after for %s: %s\n", name,
-                    ConnectionTemplate.execute(ds, c -> readBalance(c, name)));
-        });
+        ConnectionTemplate.execute(ds, c -> printBalances(c, "after"));
 
         final BigDecimal finalBalance = ConnectionTemplate.execute(ds, PlainJdbcApplication::readTotalBalance);
 
-        System.out.printf("Transaction success: %d\n", success);
-        System.out.printf("Transaction fail: %d\n", fail);
-        System.out.printf("Total turnover: %s\n", total);
+        System.out.printf("Transaction success: %d\n", aggregator.getSuccess());
+        System.out.printf("Transaction fail: %d\n", aggregator.getFail());
+        System.out.printf("Total turnover: %s\n", aggregator.getTurnover());
         System.out.printf("Total balance before: %s\n", initialBalance);
         System.out.printf("Total balance after: %s\n", finalBalance);
 
+        System.out.printf("Invariant checks: %d violations: %d\n",
+                invariantChecker.getChecks(), invariantChecker.getViolations());
+
         if (!finalBalance.equals(initialBalance)) {
             System.out.println("Balance invariant violation! (╯°□°)╯︵ ┻━┻");
             System.out.printf("Lost funds: %s\n", initialBalance.subtract(finalBalance));
+        } else if (invariantChecker.getViolations() > 0) {
+            System.out.println("Balance invariant violation during transfers! (╯°□°)╯︵ ┻━┻");
         }
     }
 }
@@ -0,0 +1,64 @@
+package io.roach.data.jdbc.plain;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Retry strategy for {@link TransactionTemplate}, deciding which errors are retried,
+ * how many times, for how long and with what delay in between.
+ */
+public interface RetryPolicy {
+    /**
+     * Policy that never retries.
+     */
+    RetryPolicy NONE = new RetryPolicy() {
+        @Override
+        public int getMaxAttempts() {
+            return 1;
+        }
+
+        @Override
+        public Duration getDeadline() {
+            return Duration.ZERO;
+        }
+
+        @Override
+        public long backoffMillis(int attempt) {
+            return 0;
+        }
+
+        @Override
+        public boolean isRetryable(SQLException ex) {
+            return false;
+        }
+    };
+
+    /**
+     * @return max number of attempts including the first one
+     */
+    int getMaxAttempts();
+
+    /**
+     * @return max time for all attempts including backoff delays, or zero for no deadline
+     */
+    Duration getDeadline();
+
+    /**
+     * @param attempt the attempt that failed, starting at 1
+     * @return delay before the next attempt
+     */
+    long backoffMillis(int attempt);
+
+    /**
+     * @return true if the transaction can be retried after the given error
+     */
+    boolean isRetryable(SQLException ex);
+
+    /**
+     * @return true to retry within the same transaction by rolling back to a savepoint
+     * (the 'cockroach_restart' protocol), rather than in a new transaction
+     */
+    default boolean isSavepointRetry() {
+        return false;
+    }
+}
@@ -1,34 +1,81 @@
 package io.roach.data.jdbc.plain;
 
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
 import java.sql.Statement;
 
 import javax.sql.DataSource;
 
 public abstract class SchemaSupport {
+    private static final int BATCH_SIZE = 64;
+
     private SchemaSupport() {
     }
 
-    public static void setupSchema(DataSource ds) throws Exception {
-        URL sql = PlainJdbcApplication.class.getResource("/db/create.sql");
-
-        StringBuilder buffer = new StringBuilder();
+    public static void setupSchema(DataSource ds) {
+        runScript(ds, "/db/create.sql");
+    }
 
-        Files.readAllLines(Paths.get(sql.toURI())).forEach(line -> {
-            if (!line.startsWith("--") && !line.isEmpty()) {
-                buffer.append(line);
+    /**
+     * Run a SQL script from the classpath, streaming the statements on a single connection.
+     * Schema changes and other statements run one at a time in their own implicit transaction,
+     * while consecutive DML statements are sent in JDBC batches.
+     *
+     * @return number of statements executed
+     */
+    public static int runScript(DataSource ds, String resource) {
+        return ConnectionTemplate.execute(ds, conn -> {
+            InputStream in = SchemaSupport.class.getResourceAsStream(resource);
+            if (in == null) {
+                throw new DataAccessException("No such script: " + resource);
             }
-            if (line.endsWith(";") && buffer.length() > 0) {
-                ConnectionTemplate.execute(ds, conn -> {
-                    try (Statement statement = conn.createStatement()) {
-                        statement.execute(buffer.toString());
+
+            // Reset by the pool on return
+            conn.setAutoCommit(true);
+
+            int count = 0;
+            int batched = 0;
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                 Statement statement = conn.createStatement()) {
+                SqlScriptReader scriptReader = new SqlScriptReader(reader);
+
+                String sql;
+                while ((sql = scriptReader.nextStatement()) != null) {
+                    count++;
+                    if (isDml(sql)) {
+                        // A batch runs in one implicit transaction
+                        statement.addBatch(sql);
+                        if (++batched == BATCH_SIZE) {
+                            statement.executeBatch();
+                            batched = 0;
+                        }
+                    } else {
+                        if (batched > 0) {
+                            statement.executeBatch();
+                            batched = 0;
+                        }
+                        statement.execute(sql);
                     }
-                    buffer.setLength(0);
-                    return null;
-                });
+                }
+                if (batched > 0) {
+                    statement.executeBatch();
+                }
+            } catch (IOException e) {
+                throw new DataAccessException("Error reading script: " + resource, e);
             }
+
+            return count;
         });
     }
+
+    private static boolean isDml(String sql) {
+        String keyword = sql.trim().split("\\s+", 2)[0].toLowerCase();
+        return keyword.equals("insert") || keyword.equals("upsert")
+                || keyword.equals("update") || keyword.equals("delete");
+    }
 }
@@ -0,0 +1,144 @@
+package io.roach.data.jdbc.plain;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming SQL script tokenizer returning one statement at a time. Statements are
+ * terminated by semicolons outside of quoted strings and identifiers, dollar-quoted
+ * bodies (like $$ ... $$ or $fn$ ... $fn$) and comments. Comments are stripped.
+ */
+public class SqlScriptReader {
+    private final Reader reader;
+
+    private int peeked = -2;
+
+    public SqlScriptReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return the next statement without the terminating semicolon, or null at end of script
+     */
+    public String nextStatement() throws IOException {
+        StringBuilder sb = new StringBuilder();
+
+        int c;
+        while ((c = read()) != -1) {
+            if (c == ';') {
+                if (!isBlank(sb)) {
+                    return sb.toString().trim();
+                }
+                sb.setLength(0);
+            } else if (c == '-' && peek() == '-') {
+                skipLineComment();
+                sb.append('\n');
+            } else if (c == '/' && peek() == '*') {
+                read();
+                skipBlockComment();
+                sb.append(' ');
+            } else if (c == '\'' || c == '"') {
+                sb.append((char) c);
+                readQuoted(sb, (char) c);
+            } else if (c == '$' && !endsWithIdentifierChar(sb)) {
+                sb.append((char) c);
+                readDollarQuoted(sb);
+            } else {
+                sb.append((char) c);
+            }
+        }
+
+        return isBlank(sb) ? null : sb.toString().trim();
+    }
+
+    private void skipLineComment() throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != '\n') {
+            // skip
+        }
+    }
+
+    private void skipBlockComment() throws IOException {
+        int depth = 1;
+        int c;
+        while (depth > 0 && (c = read()) != -1) {
+            if (c == '*' && peek() == '/') {
+                read();
+                depth--;
+            } else if (c == '/' && peek() == '*') {
+                read();
+                depth++;
+            }
+        }
+    }
+
+    private void readQuoted(StringBuilder sb, char quote) throws IOException {
+        // Doubled quotes are read as two adjacent quoted sections
+        int c;
+        while ((c = read()) != -1) {
+            sb.append((char) c);
+            if (c == quote) {
+                return;
+            }
+        }
+    }
+
+    private void readDollarQuoted(StringBuilder sb) throws IOException {
+        // Opening tag, or a positional parameter like $1 which is left as is
+        StringBuilder tag = new StringBuilder("$");
+        int c;
+        while ((c = peek()) != -1 && (Character.isLetter(c) || c == '_'
+                || (tag.length() > 1 && Character.isDigit(c)))) {
+            tag.append((char) read());
+        }
+        if (peek() != '$') {
+            sb.append(tag, 1, tag.length());
+            return;
+        }
+        tag.append((char) read());
+        sb.append(tag, 1, tag.length());
+
+        // Body up to the closing tag
+        int start = sb.length();
+        while ((c = read()) != -1) {
+            sb.append((char) c);
+            if (c == '$' && sb.length() - start >= tag.length()
+                    && sb.substring(sb.length() - tag.length()).contentEquals(tag)) {
+                return;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+
+    private static boolean endsWithIdentifierChar(StringBuilder sb) {
+        if (sb.length() == 0) {
+            return false;
+        }
+        char c = sb.charAt(sb.length() - 1);
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean isBlank(StringBuilder sb) {
+        for (int i = 0; i < sb.length(); i++) {
+            if (!Character.isWhitespace(sb.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -4,7 +4,7 @@ import java.lang.reflect.UndeclaredThrowableException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Savepoint;
-import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
@@ -16,129 +16,155 @@ public class TransactionTemplate {
 
     public static <T> T execute(DataSource ds,
                                 TransactionCallback<T> action) {
-        try (Connection conn = ds.getConnection()) {
-            conn.setAutoCommit(false);
-
-            T result;
-            try {
-                result = action.doInTransaction(conn);
-            } catch (RuntimeException | Error ex) {
-                conn.rollback();
-                throw ex;
-            } catch (Throwable ex) {
-                conn.rollback();
-                throw new UndeclaredThrowableException(ex,
-                        "TransactionCallback threw undeclared checked exception");
-            }
-            conn.commit();
-            return result;
-        } catch (SQLException e) {
-            throw new DataAccessException(e);
-        }
+        return execute(ds, RetryPolicy.NONE, action);
     }
 
-    public static <T> T executeWithRetries(DataSource ds,
-                                           TransactionCallback<T> action) {
-        int maxCalls = 10;
-        for (int n = 1; n <= maxCalls; n++) {
-            try (Connection conn = ds.getConnection()) {
-                conn.setAutoCommit(false);
-
-                try {
-                    T result = action.doInTransaction(conn);
-                    conn.commit();
-                    return result;
-                } catch (SQLException ex) {
-                    if ("40001".equals(ex.getSQLState())) {
-                        conn.rollback();
-                        handleTransientException(ex, n, maxCalls);
-                    } else {
-                        throw ex;
-                    }
-                } catch (Throwable ex) {
-                    conn.rollback();
-                    throw new UndeclaredThrowableException(ex,
-                            "TransactionCallback threw undeclared checked exception");
-                }
-            } catch (SQLException e) {
-                throw new DataAccessException("Failed to connect", e);
-            }
-        }
-        throw new DataAccessException("Too many transient errors - giving up");
-    }
+    /**
+     * Execute the callback in a transaction, retrying transient errors as given by the
+     * retry policy. With a deadline, the attempts are also bounded by a network timeout on
+     * the connection so that a hanging statement can't extend the total latency beyond it.
+     */
+    public static <T> T execute(DataSource ds,
+                                RetryPolicy retryPolicy,
+                                TransactionCallback<T> action) {
+        final Deadline deadline = new Deadline(retryPolicy);
 
-    public static <T> T executeWithSavepointRetries(DataSource ds,
-                                                    TransactionCallback<T> action) {
-        int maxCalls = 10;
+        int attempt = 1;
 
-        for (int n = 1; n <= maxCalls; n++) {
+        while (true) {
             try (Connection conn = ds.getConnection()) {
                 conn.setAutoCommit(false);
+                deadline.limitNetworkTimeout(conn);
 
-                try {
-                    Savepoint savepoint = conn.setSavepoint("cockroach_restart");
-
-                    T result;
+                Savepoint savepoint = retryPolicy.isSavepointRetry()
+                        ? conn.setSavepoint("cockroach_restart") : null;
 
-                    for (int i = 0; ; i++) {
-                        if (i > 10) {
-                            throw new DataAccessException("Too many transient errors - giving up");
+                while (true) {
+                    try {
+                        T result = action.doInTransaction(conn);
+                        if (savepoint != null) {
+                            conn.releaseSavepoint(savepoint);
                         }
-
+                        conn.commit();
+                        return result;
+                    } catch (SQLException ex) {
+                        savepoint = rollback(conn, savepoint);
                         try {
-                            result = action.doInTransaction(conn);
-                            conn.releaseSavepoint(savepoint);
-                            break;
-                        } catch (SQLException e) {
-                            conn.rollback(savepoint);
-                            if ("40001".equals(e.getSQLState())) {
-                                handleTransientException(e, n, maxCalls);
-                            } else {
-                                throw e;
+                            awaitRetry(retryPolicy, deadline, ex, attempt++);
+                        } catch (SQLException | RuntimeException giveUp) {
+                            if (savepoint != null) {
+                                // Not retrying, so don't leave the transaction open at the savepoint
+                                rollbackQuietly(conn, giveUp);
                             }
+                            throw giveUp;
                         }
-                    }
-
-                    conn.commit();
-                    return result;
-                } catch (SQLException ex) {
-                    if ("40001".equals(ex.getSQLState())) {
-                        conn.rollback();
-                        handleTransientException(ex, n, maxCalls);
-                    } else {
+                        if (savepoint == null) {
+                            break; // Retry in a new transaction
+                        }
+                    } catch (RuntimeException | Error ex) {
                         conn.rollback();
                         throw ex;
+                    } catch (Throwable ex) {
+                        conn.rollback();
+                        throw new UndeclaredThrowableException(ex,
+                                "TransactionCallback threw undeclared checked exception");
                     }
-                } catch (Throwable ex) {
-                    conn.rollback();
-                    throw new UndeclaredThrowableException(ex,
-                            "TransactionCallback threw undeclared checked exception");
                 }
             } catch (SQLException e) {
                 throw new DataAccessException(e);
             }
         }
-        throw new DataAccessException("Too many transient errors - giving up");
     }
 
-    public static final Duration MAX_BACKOFF = Duration.ofSeconds(15);
+    /**
+     * Rollback to the savepoint if possible, otherwise the entire transaction.
+     *
+     * @return the savepoint if still valid or null
+     */
+    private static Savepoint rollback(Connection conn, Savepoint savepoint) throws SQLException {
+        if (savepoint != null) {
+            try {
+                conn.rollback(savepoint);
+                return savepoint;
+            } catch (SQLException e) {
+                // Savepoint released or connection broken
+            }
+        }
+        if (!conn.isClosed()) {
+            conn.rollback();
+        }
+        return null;
+    }
+
+    private static void rollbackQuietly(Connection conn, Exception cause) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static void awaitRetry(RetryPolicy retryPolicy, Deadline deadline, SQLException ex, int attempt)
+            throws SQLException {
+        if (!retryPolicy.isRetryable(ex)) {
+            throw ex;
+        }
+        if (attempt >= retryPolicy.getMaxAttempts()) {
+            throw new DataAccessException("Too many transient errors - giving up after "
+                    + attempt + " attempts", ex);
+        }
+
+        long backoffMillis = retryPolicy.backoffMillis(attempt);
+        if (deadline.isExceededAfter(backoffMillis)) {
+            throw new DataAccessException("Transaction deadline of "
+                    + retryPolicy.getDeadline().toMillis() + " ms exceeded - giving up after "
+                    + attempt + " attempts", ex);
+        }
+
+        if (attempt <= 1 && logger.isWarnEnabled()) {
+            logger.warn("Transient SQL error (%s) in call %d/%d (backoff for %d ms before retry): %s"
+                    .formatted(ex.getSQLState(),
+                            attempt,
+                            retryPolicy.getMaxAttempts(),
+                            backoffMillis,
+                            ex.getMessage()));
+        }
 
-    private static void handleTransientException(SQLException sqlException, int numCalls, int maxCalls) {
         try {
-            long backoffMillis = Math.min((long) (Math.pow(2, numCalls) + Math.random() * 1000),
-                    MAX_BACKOFF.toMillis());
-            if (numCalls <= 1 && logger.isWarnEnabled()) {
-                logger.warn("Transient SQL error (%s) in call %d/%d (backoff for %d ms before retry): %s"
-                        .formatted(sqlException.getSQLState(),
-                                numCalls,
-                                maxCalls,
-                                backoffMillis,
-                                sqlException.getMessage()));
-            }
             Thread.sleep(backoffMillis);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while awaiting retry", ex);
         }
     }
 
+    private static class Deadline {
+        private final long deadlineNanos;
+
+        private final boolean bounded;
+
+        Deadline(RetryPolicy retryPolicy) {
+            this.bounded = !retryPolicy.getDeadline().isZero();
+            this.deadlineNanos = System.nanoTime() + retryPolicy.getDeadline().toNanos();
+        }
+
+        boolean isExceededAfter(long delayMillis) {
+            return bounded && remainingMillis() <= delayMillis;
+        }
+
+        void limitNetworkTimeout(Connection conn) throws SQLException {
+            if (bounded) {
+                long remainingMillis = remainingMillis();
+                if (remainingMillis <= 0) {
+                    throw new DataAccessException("Transaction deadline exceeded");
+                }
+                // Reset by the pool on connection return
+                conn.setNetworkTimeout(Runnable::run, (int) Math.min(Integer.MAX_VALUE, remainingMillis));
+            }
+        }
+
+        private long remainingMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        }
+    }
 }
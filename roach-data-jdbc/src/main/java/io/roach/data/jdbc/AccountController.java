@@ -1,14 +1,19 @@
 package io.roach.data.jdbc;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.PagedModel;
@@ -16,14 +21,17 @@ import org.springframework.hateoas.RepresentationModel;
 import org.springframework.hateoas.UriTemplate;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
@@ -43,9 +51,13 @@ import static org.springframework.transaction.annotation.Propagation.REQUIRES_NE
  * rather than having these propagate all the way over the wire to the client / user agent.
  *
  * @see RetryableTransactionAspect
+ * @see TransactionRetry
+ * @see AccountLockAspect
  */
 @RestController
 public class AccountController {
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Autowired
     private AccountRepository accountRepository;
 
@@ -65,6 +77,10 @@ public class AccountController {
                 .listAccounts(PageRequest.of(0, 5)))
                 .withRel("accounts")); // Lets skip curies and affordances for now
 
+        index.add(linkTo(methodOn(AccountController.class)
+                .listAccounts(AccountCursor.first(), 5, false))
+                .withRel("accounts-keyset"));
+
         index.add(Link.of(UriTemplate.of(linkTo(AccountController.class)
                         .toUriComponentsBuilder().path(
                         "/transfer/{?fromId,toId,amount}")  // RFC-6570 template
@@ -72,6 +88,12 @@ public class AccountController {
                 "transfer"
         ).withTitle("Transfer funds"));
 
+        index.add(linkTo(AccountController.class)
+                .slash("transfer")
+                .slash("batch")
+                .withRel("transfer-batch")
+                .withTitle("Transfer funds in batch"));
+
 
         // Spring boot actuators for observability / monitoring
         index.add(Link.of(
@@ -86,21 +108,74 @@ public class AccountController {
     }
 
     /**
-     * Provides a paged representation of accounts (sort order omitted).
+     * Provides a paged representation of accounts (sort order omitted). Account listings
+     * are served as historical follower reads, so balances may be a few seconds stale.
      */
     @GetMapping("/account")
-    @Transactional(propagation = REQUIRES_NEW)
+    @Transactional(propagation = REQUIRES_NEW, readOnly = true)
+    @AsOfSystemTime
     public HttpEntity<PagedModel<AccountModel>> listAccounts(
             @PageableDefault(size = 5, direction = Sort.Direction.ASC) Pageable page) {
         return ResponseEntity
                 .ok(pagedResourcesAssembler.toModel(accountRepository.findAll(page), accountModelAssembler()));
     }
 
+    /**
+     * Provides a keyset (seek) paged representation of accounts ordered by id. Rather than
+     * skipping rows by offset, each page starts after the last id of the previous page which
+     * is passed around as an opaque cursor in the next link. The page latency is therefore
+     * independent of depth and no count query is needed, unless an (approximate) total is
+     * explicitly requested in which case its returned in a response header.
+     */
+    @GetMapping(value = "/account", params = "cursor")
+    @Transactional(propagation = REQUIRES_NEW, readOnly = true)
+    @AsOfSystemTime
+    public HttpEntity<CollectionModel<AccountModel>> listAccounts(
+            @RequestParam("cursor") String cursor,
+            @RequestParam(value = "size", defaultValue = "5") int size,
+            @RequestParam(value = "count", defaultValue = "false") boolean count) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        long lastId;
+        try {
+            lastId = AccountCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        Slice<Account> slice = accountRepository.findAllAfter(lastId, size);
+
+        CollectionModel<AccountModel> model = accountModelAssembler().toCollectionModel(slice);
+        model.add(linkTo(methodOn(AccountController.class)
+                .listAccounts(cursor, size, count))
+                .withSelfRel());
+        model.add(linkTo(methodOn(AccountController.class)
+                .listAccounts(AccountCursor.first(), size, count))
+                .withRel(IanaLinkRelations.FIRST));
+        if (slice.hasNext()) {
+            Account last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            model.add(linkTo(methodOn(AccountController.class)
+                    .listAccounts(AccountCursor.encode(last.getId()), size, count))
+                    .withRel(IanaLinkRelations.NEXT));
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (count) {
+            headers.set("X-Total-Count", Long.toString(accountRepository.countAllCached()));
+        }
+
+        return new ResponseEntity<>(model, headers, HttpStatus.OK);
+    }
+
     /**
      * Provides a point lookup of a given account.
      */
     @GetMapping(value = "/account/{id}")
     @Transactional(propagation = REQUIRES_NEW, readOnly = true) // Notice its marked read-only
+    @AsOfSystemTime // Historical read that doesn't contend with transfers
     public HttpEntity<AccountModel> getAccount(@PathVariable("id") Long accountId) {
         return new ResponseEntity<>(accountModelAssembler().toModel(
                 accountRepository.findById(accountId)
@@ -109,10 +184,14 @@ public class AccountController {
     }
 
     /**
-     * Main funds transfer method.
+     * Main funds transfer method. Transfers between the same accounts are bound to conflict
+     * so retries back off adaptively based on the recent contention level. When enabled, the
+     * local account locks queue up conflicting transfers before they reach the database.
      */
     @PostMapping(value = "/transfer")
     @Transactional(propagation = REQUIRES_NEW)
+    @TransactionRetry(backoff = AdaptiveBackoffPolicy.class)
+    @AccountLock({"fromId", "toId"})
     public HttpEntity<BigDecimal> transfer(
             @RequestParam("fromId") Long fromId,
             @RequestParam("toId") Long toId,
@@ -139,6 +218,49 @@ public class AccountController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Batch funds transfer method applying all legs in one transaction. The legs are
+     * netted per account and written with a single set-based update statement that
+     * also enforces the negative balance invariant, rather than one locking read
+     * and two updates per leg. Returns the total amount transferred.
+     */
+    @PostMapping(value = "/transfer/batch")
+    @Transactional(propagation = REQUIRES_NEW)
+    public HttpEntity<BigDecimal> transfer(@RequestBody List<TransferLeg> legs) {
+        if (legs.isEmpty()) {
+            throw new IllegalArgumentException("No transfer legs");
+        }
+
+        // Sorted by id for a consistent lock acquisition order
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+
+        BigDecimal turnover = BigDecimal.ZERO;
+
+        for (TransferLeg leg : legs) {
+            if (leg.getFromId() == null || leg.getToId() == null || leg.getAmount() == null) {
+                throw new IllegalArgumentException("Transfer leg requires fromId, toId and amount");
+            }
+            if (leg.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                throw new IllegalArgumentException("Non-positive amount");
+            }
+            if (leg.getFromId().equals(leg.getToId())) {
+                throw new IllegalArgumentException("From and to accounts must be different");
+            }
+            deltas.merge(leg.getFromId(), leg.getAmount().negate(), BigDecimal::add);
+            deltas.merge(leg.getToId(), leg.getAmount(), BigDecimal::add);
+            turnover = turnover.add(leg.getAmount());
+        }
+
+        List<Long> updated = accountRepository.updateBalances(deltas);
+        if (updated.size() != deltas.size()) {
+            // Rolls back the entire batch
+            deltas.keySet().removeAll(updated);
+            throw new NegativeBalanceException("Insufficient funds or no such account for " + deltas.keySet());
+        }
+
+        return ResponseEntity.ok(turnover);
+    }
+
     private RepresentationModelAssembler<Account, AccountModel> accountModelAssembler() {
         return (entity) -> {
             AccountModel model = new AccountModel();
@@ -0,0 +1,22 @@
+package io.roach.data.jdbc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Companion annotation for @Transactional methods that serializes invocations
+ * touching the same accounts within this JVM, before a transaction is started.
+ * Only effective when the {@link AccountLockAspect} is enabled.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AccountLock {
+    /**
+     * @return names of the method parameters holding account ids
+     */
+    String[] value();
+}
@@ -0,0 +1,90 @@
+package io.roach.data.jdbc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Aspect with an around advice that queues up invocations of {@link AccountLock} annotated
+ * methods on in-process striped locks. Conflicting transfers within the same JVM then
+ * run one at a time rather than concurrently in the database, where all but one would
+ * be aborted with a serialization failure and retried.
+ * <p>
+ * This is only an optimization for hot accounts and not a substitute for database
+ * locking, since other nodes and clients are not coordinated. It's enabled with the
+ * {@code roach.account-lock.enabled} property.
+ * <p>
+ * The locks must be held across all retry attempts so this advice runs before the
+ * retry advice (@Order ensures that). Time spent waiting for a lock is recorded as
+ * {@code roach.lock.wait}.
+ */
+@Component
+@Aspect
+@ConditionalOnProperty(name = "roach.account-lock.enabled", havingValue = "true")
+// Before retry advisor
+@Order(Ordered.LOWEST_PRECEDENCE - 3)
+public class AccountLockAspect {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final StripedAccountLocks accountLocks;
+
+    public AccountLockAspect(@Value("${roach.account-lock.stripes:256}") int stripes) {
+        this.accountLocks = new StripedAccountLocks(stripes);
+    }
+
+    @Pointcut("execution(* io.roach..*(..)) && @annotation(accountLock)")
+    public void anyAccountLockOperation(AccountLock accountLock) {
+    }
+
+    @Around(value = "anyAccountLockOperation(accountLock)",
+            argNames = "pjp,accountLock")
+    public Object lockedOperation(ProceedingJoinPoint pjp, AccountLock accountLock)
+            throws Throwable {
+        Assert.isTrue(!TransactionSynchronizationManager.isActualTransactionActive(), "TX active");
+
+        final long[] accountIds = findAccountIds(pjp, accountLock);
+
+        final long waitTime = System.nanoTime();
+        final int[] stripes = accountLocks.lock(accountIds);
+        meterRegistry.timer("roach.lock.wait", "method", pjp.getSignature().toShortString())
+                .record(System.nanoTime() - waitTime, TimeUnit.NANOSECONDS);
+
+        try {
+            return pjp.proceed();
+        } finally {
+            accountLocks.unlock(stripes);
+        }
+    }
+
+    private long[] findAccountIds(ProceedingJoinPoint pjp, AccountLock accountLock) {
+        List<String> parameterNames = Arrays.asList(((MethodSignature) pjp.getSignature()).getParameterNames());
+        Object[] args = pjp.getArgs();
+
+        return Arrays.stream(accountLock.value())
+                .mapToInt(name -> {
+                    int index = parameterNames.indexOf(name);
+                    Assert.isTrue(index >= 0, "No such parameter: " + name);
+                    return index;
+                })
+                .filter(index -> args[index] != null)
+                .mapToLong(index -> ((Number) args[index]).longValue())
+                .toArray();
+    }
+}
@@ -17,7 +17,8 @@ import static org.springframework.transaction.annotation.Propagation.MANDATORY;
  */
 @Repository
 @Transactional(propagation = MANDATORY)
-public interface AccountRepository extends CrudRepository<Account, Long>, PagedAccountRepository {
+public interface AccountRepository extends CrudRepository<Account, Long>, PagedAccountRepository,
+        BatchAccountRepository {
     @Query(value = "SELECT balance FROM account WHERE id=:id FOR UPDATE")
     BigDecimal getBalance(@Param("id") Long id);
 
@@ -0,0 +1,77 @@
+package io.roach.data.jdbc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Contention aware backoff policy that scales the delay of a decorrelated jitter
+ * policy by the recent serialization failure (40001) rate of each method. The rate
+ * is tracked as an exponentially weighted moving average so that methods under
+ * heavy contention back off further, while uncontended methods retry quickly.
+ * <p>
+ * The scaled delay is capped at the max delay of the delegate. Since the retry aspect
+ * passes back the returned (scaled) delay, the unscaled delay of the last call on each
+ * thread is fed to the delegate instead so that the scaling doesn't compound.
+ */
+public class AdaptiveBackoffPolicy implements BackoffPolicy {
+    private static final double ALPHA = 0.1;
+
+    private final BackoffPolicy delegate;
+
+    private final double maxScale;
+
+    private final Map<String, ConflictRate> conflictRates = new ConcurrentHashMap<>();
+
+    // Last scaled and unscaled delay per thread, since retries of a call run on the same thread
+    private final ThreadLocal<long[]> lastDelay = ThreadLocal.withInitial(() -> new long[2]);
+
+    public AdaptiveBackoffPolicy() {
+        this(new DecorrelatedJitterBackoffPolicy(), 4.0);
+    }
+
+    public AdaptiveBackoffPolicy(BackoffPolicy delegate, double maxScale) {
+        this.delegate = delegate;
+        this.maxScale = maxScale;
+    }
+
+    @Override
+    public long nextDelay(String signature, int attempt, long previousDelay) {
+        long[] last = lastDelay.get();
+        long unscaledPrevious = previousDelay > 0 && previousDelay == last[0] ? last[1] : previousDelay;
+
+        long delay = delegate.nextDelay(signature, attempt, unscaledPrevious);
+        long scaled = Math.min(delegate.getMaxDelay(),
+                (long) (delay * (1 + (maxScale - 1) * conflictRate(signature))));
+
+        last[0] = scaled;
+        last[1] = delay;
+        return scaled;
+    }
+
+    @Override
+    public long getMaxDelay() {
+        return delegate.getMaxDelay();
+    }
+
+    @Override
+    public void recordOutcome(String signature, boolean conflict) {
+        delegate.recordOutcome(signature, conflict);
+        conflictRates.computeIfAbsent(signature, k -> new ConflictRate()).update(conflict ? 1 : 0);
+    }
+
+    /**
+     * @return the recent conflict rate between 0 and 1 for the given method signature
+     */
+    public double conflictRate(String signature) {
+        ConflictRate rate = conflictRates.get(signature);
+        return rate != null ? rate.value : 0;
+    }
+
+    private static class ConflictRate {
+        volatile double value;
+
+        synchronized void update(double sample) {
+            value = ALPHA * sample + (1 - ALPHA) * value;
+        }
+    }
+}
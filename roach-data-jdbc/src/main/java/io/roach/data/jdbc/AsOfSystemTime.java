@@ -0,0 +1,26 @@
+package io.roach.data.jdbc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Companion annotation for read-only @Transactional methods to run as historical
+ * reads using AS OF SYSTEM TIME. Historical reads don't conflict with concurrent
+ * writes and can be served by the nearest replica (follower reads), at the expense
+ * of bounded staleness.
+ *
+ * @see TransactionHintsAspect
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AsOfSystemTime {
+    /**
+     * @return the AS OF SYSTEM TIME expression, such as follower_read_timestamp() or an
+     * interval like '-5s'
+     */
+    String value() default "follower_read_timestamp()";
+}
@@ -0,0 +1,37 @@
+package io.roach.data.jdbc;
+
+/**
+ * Strategy interface for computing the delay between transaction retry attempts.
+ * Implementations must be thread safe since a single instance is shared by all
+ * methods using the same policy type.
+ *
+ * @see RetryableTransactionAspect
+ * @see TransactionRetry
+ */
+public interface BackoffPolicy {
+    /**
+     * Compute the delay before the next attempt.
+     *
+     * @param signature the method signature being retried
+     * @param attempt the number of failed attempts so far (starting at 1)
+     * @param previousDelay the previous delay in millis, or 0 for the first retry
+     * @return the delay in millis before the next attempt
+     */
+    long nextDelay(String signature, int attempt, long previousDelay);
+
+    /**
+     * @return the upper bound of any delay returned by this policy, in millis
+     */
+    default long getMaxDelay() {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Callback for the outcome of each attempt, for policies that adapt to contention.
+     *
+     * @param signature the method signature
+     * @param conflict true if the attempt failed with a serialization failure (40001)
+     */
+    default void recordOutcome(String signature, boolean conflict) {
+    }
+}
@@ -0,0 +1,20 @@
+package io.roach.data.jdbc;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based balance updates that are not expressible with spring-data-jdbc
+ * query methods, since the number of bind parameters varies.
+ */
+public interface BatchAccountRepository {
+    /**
+     * Apply the balance deltas to all given accounts in a single statement. Accounts
+     * that don't exist or would end up with a negative balance are left unchanged.
+     *
+     * @param deltas the balance delta per account id
+     * @return the ids of the accounts that were updated
+     */
+    List<Long> updateBalances(Map<Long, BigDecimal> deltas);
+}
@@ -0,0 +1,49 @@
+package io.roach.data.jdbc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.springframework.transaction.annotation.Propagation.MANDATORY;
+
+@Repository
+@Transactional(propagation = MANDATORY)
+public class BatchAccountRepositoryImpl implements BatchAccountRepository {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> updateBalances(Map<Long, BigDecimal> deltas) {
+        if (deltas.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // The negative balance invariant check is part of the predicate, so a single
+        // round trip both validates and applies all legs.
+        StringBuilder sql = new StringBuilder()
+                .append("UPDATE account SET balance = account.balance + v.delta FROM (VALUES ");
+
+        List<Object> args = new ArrayList<>(deltas.size() * 2);
+
+        deltas.forEach((id, delta) -> {
+            if (!args.isEmpty()) {
+                sql.append(",");
+            }
+            sql.append("(?::INT8, ?::DECIMAL(19,2))");
+            args.add(id);
+            args.add(delta);
+        });
+
+        sql.append(") AS v(id, delta) WHERE account.id = v.id AND account.balance + v.delta >= 0 ")
+                .append("RETURNING account.id");
+
+        return jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+    }
+}
@@ -0,0 +1,33 @@
+package io.roach.data.jdbc;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decorrelated jitter backoff, where the delay is a random value between the base
+ * delay and three times the previous delay, capped at a maximum.
+ */
+public class DecorrelatedJitterBackoffPolicy implements BackoffPolicy {
+    private final long baseDelay;
+
+    private final long maxDelay;
+
+    public DecorrelatedJitterBackoffPolicy() {
+        this(50, 1500);
+    }
+
+    public DecorrelatedJitterBackoffPolicy(long baseDelay, long maxDelay) {
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public long nextDelay(String signature, int attempt, long previousDelay) {
+        long upper = Math.max(baseDelay, previousDelay * 3);
+        return Math.min(maxDelay, ThreadLocalRandom.current().nextLong(baseDelay, upper + 1));
+    }
+
+    @Override
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+}
@@ -0,0 +1,36 @@
+package io.roach.data.jdbc;
+
+/**
+ * Default backoff policy with a 150ms initial delay multiplied by 1.5 for each
+ * attempt and capped at 1500ms.
+ */
+public class ExponentialBackoffPolicy implements BackoffPolicy {
+    private final long initialDelay;
+
+    private final double multiplier;
+
+    private final long maxDelay;
+
+    public ExponentialBackoffPolicy() {
+        this(150, 1.5, 1500);
+    }
+
+    public ExponentialBackoffPolicy(long initialDelay, double multiplier, long maxDelay) {
+        this.initialDelay = initialDelay;
+        this.multiplier = multiplier;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public long nextDelay(String signature, int attempt, long previousDelay) {
+        if (previousDelay <= 0) {
+            return initialDelay;
+        }
+        return Math.min((long) (previousDelay * multiplier), maxDelay);
+    }
+
+    @Override
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+}
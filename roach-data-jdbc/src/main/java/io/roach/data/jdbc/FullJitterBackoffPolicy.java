@@ -0,0 +1,34 @@
+package io.roach.data.jdbc;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter, where the delay is a random value between
+ * zero and the capped exponential delay. Spreads out retries of transactions that
+ * failed at the same time so they don't collide again.
+ */
+public class FullJitterBackoffPolicy implements BackoffPolicy {
+    private final long baseDelay;
+
+    private final long maxDelay;
+
+    public FullJitterBackoffPolicy() {
+        this(50, 1500);
+    }
+
+    public FullJitterBackoffPolicy(long baseDelay, long maxDelay) {
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public long nextDelay(String signature, int attempt, long previousDelay) {
+        long ceiling = Math.min(maxDelay, baseDelay * (1L << Math.min(attempt, 20)));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    @Override
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+}
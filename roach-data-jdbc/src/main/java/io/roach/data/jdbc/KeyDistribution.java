@@ -0,0 +1,126 @@
+package io.roach.data.jdbc;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distribution of account ids picked by the load generator, ranging from 1 to
+ * the number of accounts (inclusive).
+ */
+public interface KeyDistribution {
+    long nextId();
+
+    static KeyDistribution of(String name, int accounts) {
+        switch (name) {
+            case "uniform":
+                return new Uniform(accounts);
+            case "zipfian":
+                return new Zipfian(accounts, 0.99);
+            case "hotspot":
+                return new HotSpot(accounts, 0.2, 0.8);
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + name);
+        }
+    }
+
+    /**
+     * All accounts are equally likely.
+     */
+    class Uniform implements KeyDistribution {
+        private final int accounts;
+
+        public Uniform(int accounts) {
+            this.accounts = accounts;
+        }
+
+        @Override
+        public long nextId() {
+            return ThreadLocalRandom.current().nextInt(accounts) + 1;
+        }
+
+        @Override
+        public String toString() {
+            return "uniform";
+        }
+    }
+
+    /**
+     * Zipfian distribution where lower ids are more popular, using the algorithm from
+     * "Quickly Generating Billion-Record Synthetic Databases" by Gray et al.
+     */
+    class Zipfian implements KeyDistribution {
+        private final int accounts;
+
+        private final double theta;
+
+        private final double zetaN;
+
+        private final double alpha;
+
+        private final double eta;
+
+        public Zipfian(int accounts, double theta) {
+            this.accounts = accounts;
+            this.theta = theta;
+            this.zetaN = zeta(accounts, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / accounts, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+        }
+
+        private static double zeta(long n, double theta) {
+            double sum = 0;
+            for (long i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+
+        @Override
+        public long nextId() {
+            double u = ThreadLocalRandom.current().nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1.0) {
+                return 1;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)) {
+                return 2;
+            }
+            return Math.min(accounts, 1 + (long) (accounts * Math.pow(eta * u - eta + 1, alpha)));
+        }
+
+        @Override
+        public String toString() {
+            return "zipfian";
+        }
+    }
+
+    /**
+     * A fraction of hot accounts receive a disproportionate fraction of operations.
+     */
+    class HotSpot implements KeyDistribution {
+        private final int accounts;
+
+        private final int hotAccounts;
+
+        private final double hotOpsFraction;
+
+        public HotSpot(int accounts, double hotAccountsFraction, double hotOpsFraction) {
+            this.accounts = accounts;
+            this.hotAccounts = Math.max(1, (int) (accounts * hotAccountsFraction));
+            this.hotOpsFraction = hotOpsFraction;
+        }
+
+        @Override
+        public long nextId() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (hotAccounts >= accounts || random.nextDouble() < hotOpsFraction) {
+                return random.nextInt(hotAccounts) + 1;
+            }
+            return hotAccounts + random.nextInt(accounts - hotAccounts) + 1;
+        }
+
+        @Override
+        public String toString() {
+            return "hotspot";
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package io.roach.data.jdbc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.hateoas.Link;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * HTTP client workload driver submitting funds transfer requests.
+ * <p>
+ * In closed-loop mode, each worker issues the next request when the previous completes,
+ * optionally paced to the target rate. In open-loop mode, requests are dispatched at the
+ * target rate regardless of completion and queue up if the workers fall behind. Latency
+ * is measured from the intended start time in both modes to avoid coordinated omission.
+ * <p>
+ * Workers run on a fixed pool of platform threads by default. In virtual thread mode, the
+ * open-loop concurrency is only bounded by the server since each request gets its own thread.
+ */
+public class LoadGenerator {
+    public enum Mode {
+        OPEN,
+        CLOSED
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private final Link transferLink;
+
+    private final RestTemplate template = new RestTemplate();
+
+    private final String baseUri;
+
+    private Mode mode = Mode.CLOSED;
+
+    private int concurrency = 1;
+
+    private int rate;
+
+    private int durationSeconds;
+
+    private int iterations = 100;
+
+    private KeyDistribution keyDistribution = KeyDistribution.of("uniform", 4);
+
+    private BigDecimal amount = new BigDecimal("10.00");
+
+    private boolean virtualThreads;
+
+    private final Histogram histogram = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+
+    private final LongAdder success = new LongAdder();
+
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    public LoadGenerator(String baseUri) {
+        this.baseUri = baseUri;
+        this.transferLink = Link.of(baseUri + "/transfer{?fromId,toId,amount}");
+    }
+
+    public LoadGenerator setMode(Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public LoadGenerator setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * @param rate target rate in ops/sec across all workers, or 0 for unbounded (closed-loop only)
+     */
+    public LoadGenerator setRate(int rate) {
+        this.rate = rate;
+        return this;
+    }
+
+    /**
+     * @param durationSeconds run duration, or 0 to run a fixed number of iterations per worker
+     */
+    public LoadGenerator setDurationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+        return this;
+    }
+
+    public LoadGenerator setIterations(int iterations) {
+        this.iterations = iterations;
+        return this;
+    }
+
+    public LoadGenerator setKeyDistribution(KeyDistribution keyDistribution) {
+        this.keyDistribution = keyDistribution;
+        return this;
+    }
+
+    public LoadGenerator setAmount(BigDecimal amount) {
+        this.amount = amount;
+        return this;
+    }
+
+    /**
+     * @param virtualThreads run each worker (closed-loop) or request (open-loop) in a virtual
+     * thread, which requires JDK 21+ at runtime
+     */
+    public LoadGenerator setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public void run() {
+        if (mode == Mode.OPEN && rate <= 0) {
+            throw new IllegalArgumentException("Open-loop mode requires a target rate");
+        }
+
+        logger.info("Lets move some $$ around! ({}-loop, concurrency {}, rate {}, {}, distribution {})",
+                mode.name().toLowerCase(), concurrency, rate > 0 ? rate + " ops/s" : "unbounded",
+                durationSeconds > 0 ? durationSeconds + "s" : iterations + " iterations per worker",
+                keyDistribution);
+
+        final double retriesBefore = serverMetric("roach.retry.retries");
+        final double giveUpsBefore = serverMetric("roach.retry.giveups");
+
+        final ExecutorService executorService = newExecutorService();
+
+        final long startTime = System.nanoTime();
+        final long endTime = durationSeconds > 0
+                ? startTime + TimeUnit.SECONDS.toNanos(durationSeconds) : Long.MAX_VALUE;
+
+        try {
+            if (mode == Mode.OPEN) {
+                runOpenLoop(executorService, startTime, endTime);
+            } else {
+                runClosedLoop(executorService, startTime, endTime);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        final long elapsedNanos = System.nanoTime() - startTime;
+
+        report(elapsedNanos,
+                serverMetric("roach.retry.retries") - retriesBefore,
+                serverMetric("roach.retry.giveups") - giveUpsBefore);
+    }
+
+    private ExecutorService newExecutorService() {
+        if (virtualThreads) {
+            // Reflective lookup since this module is compiled for Java 8
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("Virtual threads not supported by this JVM (requires JDK 21+) - using platform threads");
+            }
+        }
+        return Executors.newFixedThreadPool(concurrency);
+    }
+
+    private void runClosedLoop(ExecutorService executorService, long startTime, long endTime) {
+        final long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) * concurrency / rate : 0;
+
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(executorService.submit(() -> {
+                long intendedStart = startTime;
+                for (int j = 0; durationSeconds > 0 || j < iterations; j++) {
+                    if (intervalNanos > 0) {
+                        parkUntil(intendedStart);
+                    } else {
+                        intendedStart = System.nanoTime();
+                    }
+                    if (intendedStart >= endTime || Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    transfer(intendedStart);
+                    intendedStart += intervalNanos;
+                }
+            }));
+        }
+
+        awaitCompletion(futures);
+    }
+
+    private void runOpenLoop(ExecutorService executorService, long startTime, long endTime) {
+        final long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        final long totalOps = durationSeconds > 0 ? Long.MAX_VALUE : (long) iterations * concurrency;
+
+        for (long i = 0; i < totalOps && !Thread.currentThread().isInterrupted(); i++) {
+            final long intendedStart = startTime + i * intervalNanos;
+            if (intendedStart >= endTime) {
+                break;
+            }
+            parkUntil(intendedStart);
+            executorService.execute(() -> transfer(intendedStart));
+        }
+
+        executorService.shutdown();
+        try {
+            while (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.info("Awaiting completion of queued transfers");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void transfer(long intendedStart) {
+        long fromId = keyDistribution.nextId();
+        long toId;
+        do {
+            toId = keyDistribution.nextId();
+        } while (toId == fromId);
+
+        Map<String, Object> form = new HashMap<>();
+        form.put("fromId", fromId);
+        form.put("toId", toId);
+        form.put("amount", amount);
+
+        String uri = transferLink.expand(form).getHref();
+
+        logger.debug("({}) Transfer {} from {} to {}", uri, amount, fromId, toId);
+
+        try {
+            template.postForEntity(uri, null, String.class);
+            success.increment();
+        } catch (HttpStatusCodeException e) {
+            logger.warn(e.getResponseBodyAsString());
+            errors.computeIfAbsent(e.getStatusCode().toString(), k -> new LongAdder()).increment();
+        } catch (RestClientException e) {
+            logger.warn(e.getMessage());
+            errors.computeIfAbsent(e.getClass().getSimpleName(), k -> new LongAdder()).increment();
+        } finally {
+            histogram.recordValue(Math.min(histogram.getHighestTrackableValue(),
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart)));
+        }
+    }
+
+    private void report(long elapsedNanos, double serverRetries, double serverGiveUps) {
+        long successCount = success.sum();
+        long errorCount = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        long total = successCount + errorCount;
+        double elapsedSeconds = elapsedNanos / 1_000_000_000.0;
+
+        logger.info("Completed {} transfers in {} s ({} ops/s)", total,
+                String.format("%.1f", elapsedSeconds),
+                String.format("%.1f", total / elapsedSeconds));
+        logger.info("Success: {} Errors: {} ({}%) {}", successCount, errorCount,
+                String.format("%.2f", total > 0 ? errorCount * 100.0 / total : 0), errors);
+        logger.info("Latency (ms) p50: {} p90: {} p99: {} p99.9: {} max: {}",
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                String.format("%.2f", histogram.getMaxValue() / 1000.0));
+        logger.info("Server retries: {} ({} per transfer) give-ups: {}",
+                (long) serverRetries,
+                String.format("%.3f", total > 0 ? serverRetries / total : 0),
+                (long) serverGiveUps);
+    }
+
+    private String percentileMillis(double percentile) {
+        return String.format("%.2f", histogram.getValueAtPercentile(percentile) / 1000.0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private double serverMetric(String name) {
+        try {
+            Map<String, Object> metric = template.getForObject(baseUri + "/actuator/metrics/" + name, Map.class);
+            List<Map<String, Object>> measurements = (List<Map<String, Object>>) metric.get("measurements");
+            return ((Number) measurements.get(0).get("value")).doubleValue();
+        } catch (RestClientException | NullPointerException | IndexOutOfBoundsException e) {
+            // Not registered until first recorded
+            return 0;
+        }
+    }
+
+    private static void parkUntil(long deadlineNanos) {
+        long delay;
+        while ((delay = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(delay);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    private static void awaitCompletion(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.warn("Worker failed", e.getCause());
+            }
+        }
+    }
+}
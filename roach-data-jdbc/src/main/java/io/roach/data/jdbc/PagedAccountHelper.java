@@ -11,6 +11,9 @@ public interface PagedAccountHelper extends org.springframework.data.repository.
     @Query("SELECT * FROM account LIMIT :pageSize OFFSET :offset")
     List<Account> findAll(@Param("pageSize") int pageSize, @Param("offset") long offset);
 
+    @Query("SELECT * FROM account WHERE id > :lastId ORDER BY id LIMIT :pageSize")
+    List<Account> findAllAfter(@Param("lastId") long lastId, @Param("pageSize") int pageSize);
+
     @Query("SELECT count(id) FROM account")
     long countAll();
 }
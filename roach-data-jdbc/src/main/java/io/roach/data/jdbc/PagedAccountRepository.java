@@ -2,11 +2,28 @@ package io.roach.data.jdbc;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 /**
  * Pagination is not available in spring-data-jdbc (yet) so we create a separate
  * repository to provide basic limit+offset pagination queries for accounts.
+ * <p>
+ * Limit+offset pagination gets slower the deeper you page since all skipped rows
+ * are still scanned. Keyset (seek) pagination instead starts from the last seen
+ * primary key, which keeps the page latency flat regardless of depth.
  */
 public interface PagedAccountRepository {
     Page<Account> findAll(Pageable pageable);
+
+    /**
+     * Find a slice of accounts ordered by id, starting after the given id.
+     * No total count is computed, only if there's a next slice or not.
+     */
+    Slice<Account> findAllAfter(long lastId, int pageSize);
+
+    /**
+     * Count all accounts with the result cached for a short period of time,
+     * so the total is approximate in the presence of concurrent inserts or deletes.
+     */
+    long countAllCached();
 }
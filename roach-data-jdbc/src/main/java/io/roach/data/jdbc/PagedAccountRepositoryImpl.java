@@ -1,9 +1,15 @@
 package io.roach.data.jdbc;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,13 +19,55 @@ import static org.springframework.transaction.annotation.Propagation.MANDATORY;
 // @Transactional annotation here to emphasise that repositories should always be called within an existing transaction context
 @Transactional(propagation = MANDATORY)
 public class PagedAccountRepositoryImpl implements PagedAccountRepository {
+    private static final long COUNT_CACHE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
     @Autowired
     private PagedAccountHelper pagedAccountHelper;
 
+    private volatile CachedCount cachedCount;
+
     @Override
     public Page<Account> findAll(Pageable pageable) {
-        return new PageImpl<>(pagedAccountHelper.findAll(pageable.getPageSize(), pageable.getOffset()),
+        // The count query is skipped for the first and last page where the total can be derived
+        return PageableExecutionUtils.getPage(
+                pagedAccountHelper.findAll(pageable.getPageSize(), pageable.getOffset()),
                 pageable,
-                pagedAccountHelper.countAll());
+                this::countAllCached);
+    }
+
+    @Override
+    public Slice<Account> findAllAfter(long lastId, int pageSize) {
+        // Fetch one extra row to find out if there's a next slice
+        List<Account> content = pagedAccountHelper.findAllAfter(lastId, pageSize + 1);
+        boolean hasNext = content.size() > pageSize;
+        if (hasNext) {
+            content = content.subList(0, pageSize);
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, pageSize), hasNext);
+    }
+
+    @Override
+    public long countAllCached() {
+        CachedCount current = cachedCount;
+        if (current == null || current.isExpired()) {
+            current = new CachedCount(pagedAccountHelper.countAll());
+            cachedCount = current;
+        }
+        return current.count;
+    }
+
+    private static class CachedCount {
+        final long count;
+
+        final long expiresAt;
+
+        CachedCount(long count) {
+            this.count = count;
+            this.expiresAt = System.currentTimeMillis() + COUNT_CACHE_TTL_MILLIS;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
     }
 }
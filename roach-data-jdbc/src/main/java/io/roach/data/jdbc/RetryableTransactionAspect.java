@@ -1,15 +1,22 @@
 package io.roach.data.jdbc;
 
+import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
-import java.util.concurrent.atomic.AtomicLong;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.TransientDataAccessException;
@@ -19,10 +26,17 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 
+import io.roach.data.support.RetryMetrics;
+
 /**
  * Aspect with an around advice that intercepts and retries transient concurrency exceptions.
  * Methods matching the pointcut expression (annotated with @Transactional) are retried a number
- * of times with exponential backoff.
+ * of times with a delay between attempts given by a {@link BackoffPolicy}. The max attempts and
+ * policy can be configured per method using the {@link TransactionRetry} annotation, otherwise
+ * exponential backoff is used.
+ * <p>
+ * Attempts, backoff time, SQL states and end-to-end latency are recorded per method
+ * signature by {@link RetryMetrics}.
  * <p>
  * This advice needs to runs in a non-transactional context, which is before the underlying
  * transaction advisor (@Order ensures that).
@@ -32,8 +46,15 @@ import org.springframework.util.Assert;
 // Before TX advisor
 @Order(Ordered.LOWEST_PRECEDENCE - 2)
 public class RetryableTransactionAspect {
+    private static final TransactionRetry DEFAULT_RETRY = AnnotationUtils.synthesizeAnnotation(TransactionRetry.class);
+
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
+    @Autowired
+    private RetryMetrics retryMetrics;
+
+    private final Map<Class<? extends BackoffPolicy>, BackoffPolicy> backoffPolicies = new ConcurrentHashMap<>();
+
     @Pointcut("execution(* io.roach..*(..)) && @annotation(transactional)")
     public void anyTransactionBoundaryOperation(Transactional transactional) {
     }
@@ -42,47 +63,93 @@ public class RetryableTransactionAspect {
             argNames = "pjp,transactional")
     public Object retryableOperation(ProceedingJoinPoint pjp, Transactional transactional)
             throws Throwable {
-        final int totalRetries = 30;
-        int numAttempts = 0;
-        AtomicLong backoffMillis = new AtomicLong(150);
-
         Assert.isTrue(!TransactionSynchronizationManager.isActualTransactionActive(), "TX active");
 
-        do {
-            try {
-                numAttempts++;
-                return pjp.proceed();
-            } catch (TransientDataAccessException | TransactionSystemException ex) {
-                handleTransientException(ex, numAttempts, totalRetries, pjp, backoffMillis);
-            } catch (UndeclaredThrowableException ex) {
-                Throwable t = ex.getUndeclaredThrowable();
-                if (t instanceof TransientDataAccessException) {
-                    handleTransientException(t, numAttempts, totalRetries, pjp, backoffMillis);
-                } else {
-                    throw ex;
+        final TransactionRetry retry = findTransactionRetry(pjp);
+        final BackoffPolicy backoffPolicy = backoffPolicies.computeIfAbsent(retry.backoff(),
+                BeanUtils::instantiateClass);
+        final String signature = pjp.getSignature().toLongString();
+        final int totalAttempts = retry.maxAttempts();
+
+        final long callTime = System.nanoTime();
+
+        int numAttempts = 0;
+        long backoffMillis = 0;
+        String outcome = RetryMetrics.OUTCOME_FAILURE;
+
+        try {
+            do {
+                try {
+                    numAttempts++;
+                    Object rv = pjp.proceed();
+                    backoffPolicy.recordOutcome(signature, false);
+                    outcome = RetryMetrics.OUTCOME_SUCCESS;
+                    return rv;
+                } catch (TransientDataAccessException | TransactionSystemException ex) {
+                    backoffMillis = handleTransientException(ex, numAttempts, totalAttempts, pjp,
+                            backoffPolicy, backoffMillis);
+                } catch (UndeclaredThrowableException ex) {
+                    Throwable t = ex.getUndeclaredThrowable();
+                    if (t instanceof TransientDataAccessException) {
+                        backoffMillis = handleTransientException(t, numAttempts, totalAttempts, pjp,
+                                backoffPolicy, backoffMillis);
+                    } else {
+                        throw ex;
+                    }
                 }
-            }
-        } while (numAttempts < totalRetries);
+            } while (numAttempts < totalAttempts);
 
-        throw new ConcurrencyFailureException("Too many transient errors (" + numAttempts + ") for method ["
-                + pjp.getSignature().toLongString() + "]. Giving up!");
+            outcome = RetryMetrics.OUTCOME_GIVE_UP;
+
+            throw new ConcurrencyFailureException("Too many transient errors (" + numAttempts + ") for method ["
+                    + signature + "]. Giving up!");
+        } finally {
+            retryMetrics.recordCompletion(pjp.getSignature().toShortString(), numAttempts,
+                    System.nanoTime() - callTime, outcome);
+        }
+    }
+
+    private TransactionRetry findTransactionRetry(ProceedingJoinPoint pjp) {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        TransactionRetry retry = AnnotationUtils.findAnnotation(method, TransactionRetry.class);
+        return retry != null ? retry : DEFAULT_RETRY;
     }
 
-    private void handleTransientException(Throwable ex, int numAttempts, int totalAttempts,
-                                          ProceedingJoinPoint pjp, AtomicLong backoffMillis) {
+    private long handleTransientException(Throwable ex, int numAttempts, int totalAttempts,
+                                          ProceedingJoinPoint pjp, BackoffPolicy backoffPolicy,
+                                          long previousBackoffMillis) {
+        String signature = pjp.getSignature().toLongString();
+
+        String sqlState = findSqlState(ex);
+
+        backoffPolicy.recordOutcome(signature, "40001".equals(sqlState));
+        retryMetrics.recordTransientError(pjp.getSignature().toShortString(), sqlState);
+
+        long backoffMillis = backoffPolicy.nextDelay(signature, numAttempts, previousBackoffMillis);
+
         if (logger.isWarnEnabled()) {
             logger.warn("Transient data access exception (" + numAttempts + " of max " + totalAttempts + ") "
                     + "detected (retry in " + backoffMillis + " ms) "
                     + "in method '" + pjp.getSignature().getDeclaringTypeName() + "." + pjp.getSignature().getName()
                     + "': " + ex.getMessage());
         }
-        if (backoffMillis.get() >= 0) {
+        if (backoffMillis >= 0 && numAttempts < totalAttempts) {
+            retryMetrics.recordBackoff(pjp.getSignature().toShortString(), backoffMillis);
             try {
-                Thread.sleep(backoffMillis.get());
+                Thread.sleep(backoffMillis);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
-            backoffMillis.set(Math.min((long) (backoffMillis.get() * 1.5), 1500));
         }
+        return backoffMillis;
+    }
+
+    private static String findSqlState(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                return ((SQLException) t).getSQLState();
+            }
+        }
+        return null;
     }
 }
@@ -0,0 +1,61 @@
+package io.roach.data.jdbc;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks where each account id maps to one stripe. Memory use is
+ * bounded regardless of the number of accounts, at the cost of unrelated accounts
+ * occasionally sharing a stripe.
+ * <p>
+ * Locks for multiple accounts are acquired in ascending stripe order (which follows
+ * account id order for ids below the stripe count), so two callers can never wait
+ * on each other in a cycle.
+ */
+public class StripedAccountLocks {
+    private final Lock[] stripes;
+
+    public StripedAccountLocks(int numStripes) {
+        if (numStripes < 1) {
+            throw new IllegalArgumentException("At least one stripe is needed");
+        }
+        this.stripes = new Lock[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Acquire the locks for the given account ids.
+     *
+     * @return the acquired stripes to be passed to {@link #unlock(int[])}
+     */
+    public int[] lock(long... accountIds) throws InterruptedException {
+        int[] indexes = Arrays.stream(accountIds)
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        for (int i = 0; i < indexes.length; i++) {
+            try {
+                stripes[indexes[i]].lockInterruptibly();
+            } catch (InterruptedException e) {
+                unlock(Arrays.copyOf(indexes, i));
+                throw e;
+            }
+        }
+        return indexes;
+    }
+
+    public void unlock(int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    private int stripeOf(long accountId) {
+        return (int) Math.floorMod(accountId, (long) stripes.length);
+    }
+}
@@ -1,24 +1,47 @@
 package io.roach.data.jdbc;
 
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+import javax.sql.DataSource;
+
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.postgresql.PGConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 
 /**
  * Aspect with an around advice that intercepts and sets transaction attributes.
  * <p>
+ * Session variables are sticky on the physical connection, so the last value set is
+ * tracked per connection and a SET statement is only issued when the value changes.
+ * The application name is instead passed as a connection property (see application.yml)
+ * and the read-only attribute is folded into BEGIN by the driver, since the transaction
+ * manager marks the connection read-only. This avoids extra round trips per transaction.
+ * <p>
+ * Read-only methods annotated with {@link AsOfSystemTime} are run as historical reads.
+ * <p>
  * This advice needs to runs in a transactional context, which is after the underlying
  * transaction advisor.
  */
@@ -27,12 +50,18 @@ import org.springframework.util.Assert;
 // After TX advisor
 @Order(Ordered.LOWEST_PRECEDENCE)
 public class TransactionHintsAspect {
+    private static final int NO_TIMEOUT = 0;
+
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
-    private String applicationName = "roach-data";
+    @Autowired
+    private DataSource dataSource;
+
+    // Keyed by physical connection so entries are dropped when the pool evicts connections
+    private final Map<Connection, Integer> statementTimeouts = Collections.synchronizedMap(new WeakHashMap<>());
 
     @Pointcut("execution(* io.roach..*(..)) && @annotation(transactional)")
     public void anyTransactionBoundaryOperation(Transactional transactional) {
@@ -44,20 +73,46 @@ public class TransactionHintsAspect {
             throws Throwable {
         Assert.isTrue(TransactionSynchronizationManager.isActualTransactionActive(), "TX not active");
 
-        // https://www.cockroachlabs.com/docs/v19.2/set-vars.html
-        jdbcTemplate.update("SET application_name=?", applicationName);
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        AsOfSystemTime asOfSystemTime = AnnotationUtils.findAnnotation(method, AsOfSystemTime.class);
+        if (asOfSystemTime != null) {
+            Assert.isTrue(transactional.readOnly(), "AS OF SYSTEM TIME requires a read-only transaction");
+            // Must be the first statement in the transaction
+            jdbcTemplate.execute("SET TRANSACTION AS OF SYSTEM TIME " + asOfSystemTime.value());
+        }
+
+        int statementTimeout = transactional.timeout() != TransactionDefinition.TIMEOUT_DEFAULT
+                ? transactional.timeout() * 1000 : NO_TIMEOUT;
 
-        if (transactional.timeout() != TransactionDefinition.TIMEOUT_DEFAULT) {
-            logger.info("Setting statement time {} for {}", transactional.timeout(),
+        Connection connection = physicalConnection();
+
+        // https://www.cockroachlabs.com/docs/stable/set-vars.html
+        if (!Objects.equals(statementTimeouts.get(connection), statementTimeout)) {
+            logger.info("Setting statement timeout {} for {}", statementTimeout,
                     pjp.getSignature().toShortString());
-            jdbcTemplate.update("SET statement_timeout=?", transactional.timeout() * 1000);
-        }
+            jdbcTemplate.update("SET statement_timeout=?", statementTimeout);
+            statementTimeouts.put(connection, statementTimeout);
 
-        if (transactional.readOnly()) {
-            logger.info("Setting transaction read only for {}", pjp.getSignature().toShortString());
-            jdbcTemplate.execute("SET transaction_read_only=true");
+            // Session variables set in an aborted transaction may be reverted
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        statementTimeouts.remove(connection);
+                    }
+                }
+            });
         }
 
         return pjp.proceed();
     }
+
+    private Connection physicalConnection() throws SQLException {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return (Connection) connection.unwrap(PGConnection.class);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
 }
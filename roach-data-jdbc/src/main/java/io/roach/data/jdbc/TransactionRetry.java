@@ -0,0 +1,27 @@
+package io.roach.data.jdbc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Companion annotation for @Transactional methods to configure the retry
+ * behaviour of the {@link RetryableTransactionAspect}. Methods without this
+ * annotation are retried using the defaults.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface TransactionRetry {
+    /**
+     * @return max number of attempts including the first one
+     */
+    int maxAttempts() default 30;
+
+    /**
+     * @return the backoff policy type, instantiated once and shared by all methods using it
+     */
+    Class<? extends BackoffPolicy> backoff() default ExponentialBackoffPolicy.class;
+}
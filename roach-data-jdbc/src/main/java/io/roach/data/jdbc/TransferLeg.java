@@ -0,0 +1,38 @@
+package io.roach.data.jdbc;
+
+import java.math.BigDecimal;
+
+/**
+ * A single leg in a batch of transfers, represented in JSON via REST API.
+ */
+public class TransferLeg {
+    private Long fromId;
+
+    private Long toId;
+
+    private BigDecimal amount;
+
+    public Long getFromId() {
+        return fromId;
+    }
+
+    public void setFromId(Long fromId) {
+        this.fromId = fromId;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+
+    public void setToId(Long toId) {
+        this.toId = toId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,15 @@
+package io.roach.data.jdbi;
+
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * SQL Object DAO for account balances, attached to transaction handles.
+ */
+public interface AccountDao {
+    @SqlBatch("UPDATE account SET balance = balance + :amount, updated=clock_timestamp() WHERE name = :name")
+    int[] updateBalances(@Bind("name") Collection<String> names, @Bind("amount") Collection<BigDecimal> amounts);
+}
@@ -1,20 +1,21 @@
 package io.roach.data.jdbi;
 
 import com.zaxxer.hikari.HikariDataSource;
+import io.roach.data.support.CompletionAggregator;
+import io.roach.data.support.InvariantChecker;
 import net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel;
 import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
 import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.statement.Query;
-import org.jdbi.v3.core.statement.Update;
-import org.jdbi.v3.core.transaction.SerializableTransactionRunner;
 import org.jdbi.v3.core.transaction.TransactionIsolationLevel;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
 
 import javax.sql.DataSource;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class JdbiApplication {
@@ -24,49 +25,75 @@ public class JdbiApplication {
         }
     }
 
-    private static BigDecimal transfer(DataSource ds, List<Account> legs) {
-        Jdbi jdbi = Jdbi.create(ds);
-        jdbi.setTransactionHandler(new SerializableTransactionRunner());
+    /**
+     * Transfer funds between the account legs of one or more independent transfers
+     * in a single transaction. The legs are netted per account and all balances are
+     * updated with one batch, in name order to keep a consistent lock order.
+     */
+    private static BigDecimal transfer(Jdbi jdbi, List<List<Account>> transfers) {
         return jdbi.inTransaction(TransactionIsolationLevel.SERIALIZABLE, transactionHandle -> {
             BigDecimal total = BigDecimal.ZERO;
-            BigDecimal checksum = BigDecimal.ZERO;
 
-            for (Account leg : legs) {
-                BigDecimal balance = readBalance(transactionHandle, leg.name);
-                updateBalance(transactionHandle, leg.name, balance.add(leg.amount));
-                checksum = checksum.add(leg.amount);
-                total = total.add(leg.amount.abs());
+            Map<String, BigDecimal> deltas = new TreeMap<>();
+
+            for (List<Account> legs : transfers) {
+                BigDecimal checksum = BigDecimal.ZERO;
+
+                for (Account leg : legs) {
+                    deltas.merge(leg.name, leg.amount, BigDecimal::add);
+                    checksum = checksum.add(leg.amount);
+                    total = total.add(leg.amount.abs());
+                }
+
+                if (checksum.compareTo(BigDecimal.ZERO) != 0) {
+                    throw new BusinessException(
+                            "Sum of account legs must equal 0 (got " + checksum.toPlainString() + ")"
+                    );
+                }
+            }
+
+            if (deltas.isEmpty()) {
+                return total;
             }
 
-            if (checksum.compareTo(BigDecimal.ZERO) != 0) {
-                throw new BusinessException(
-                        "Sum of account legs must equal 0 (got " + checksum.toPlainString() + ")"
-                );
+            AccountDao accountDao = transactionHandle.attach(AccountDao.class);
+
+            // Missing accounts are detected by the update counts, in the same order as the names
+            int[] rowsAffected = accountDao.updateBalances(deltas.keySet(), deltas.values());
+            int i = 0;
+            for (String name : deltas.keySet()) {
+                if (rowsAffected[i++] != 1) {
+                    throw new BusinessException("Account not found: " + name);
+                }
             }
 
             return total;
         });
     }
 
-    private static List<String> readAccountNames(Handle handle) {
-        Query query = handle.createQuery("SELECT name FROM account");
-        return query.mapTo(String.class).collect(Collectors.toList());
-    }
+    private static List<Account> randomLegs(int accounts) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Account> legs = new ArrayList<>();
+
+        IntStream.rangeClosed(1, 4).forEach(leg -> {
+            String from = "customer:" + random.nextInt(1, accounts + 1);
+            String to = "customer:" + random.nextInt(1, accounts + 1);
+            if (!from.equals(to)) {
+                BigDecimal amt = new BigDecimal("0.15");
+                legs.add(new Account(from, amt));
+                legs.add(new Account(to, amt.negate()));
+            }
+        });
 
-    private static BigDecimal readBalance(Handle handle, String name) {
-        Query query = handle.createQuery("SELECT balance FROM account WHERE name = ?");
-        query.bind(0, name);
-        return query.mapTo(BigDecimal.class).findOne()
-                .orElseThrow(() -> new BusinessException("Account not found: " + name));
+        return legs;
     }
 
-    private static void updateBalance(Handle handle, String name, BigDecimal balance) {
-        Update update = handle.createUpdate("UPDATE account SET balance = ?, updated=clock_timestamp() where name = ?");
-        update.bind(0, balance);
-        update.bind(1, name);
-        if (update.execute() != 1) {
-            throw new DataAccessException("Rows affected != 1  for " + name);
-        }
+    private static void printBalances(Jdbi jdbi, String label) {
+        // Streamed in chunks rather than buffered (requires a transaction)
+        jdbi.useTransaction(handle -> handle.createQuery("SELECT name, balance FROM account ORDER BY id")
+                .setFetchSize(1024)
+                .map((rs, ctx) -> String.format("Balance %s for %s: %s", label, rs.getString(1), rs.getBigDecimal(2)))
+                .forEach(System.out::println));
     }
 
     private static BigDecimal readTotalBalance(Handle handle) {
@@ -78,14 +105,21 @@ public class JdbiApplication {
         int workers = Runtime.getRuntime().availableProcessors();
         boolean verbose = false;
         int iterations = 200;
+        Duration checkInterval = Duration.ofSeconds(5);
+        Duration duration = null;
+        int batchSize = 1;
+        int accounts = 100;
+        int poolSize = 0;
+
+        final RetryMetrics retryMetrics = new RetryMetrics();
+        final RetryingTransactionHandler transactionHandler = new RetryingTransactionHandler()
+                .addListener(retryMetrics);
 
         final HikariDataSource hikariDS = new HikariDataSource();
         {
             hikariDS.setJdbcUrl("jdbc:postgresql://localhost:26257/roach_data?sslmode=disable");
 //            hikariDS.setJdbcUrl("jdbc:postgresql://192.168.1.99:26257/roach_data?sslmode=disable");
             hikariDS.setUsername("root");
-            hikariDS.setMaximumPoolSize(workers);
-            hikariDS.setMinimumIdle(workers);
         }
 
         LinkedList<String> argsList = new LinkedList<>(Arrays.asList(args));
@@ -95,6 +129,14 @@ public class JdbiApplication {
                 workers = Integer.parseInt(argsList.pop());
             } else if (arg.equals("--iterations")) {
                 iterations = Integer.parseInt(argsList.pop());
+            } else if (arg.equals("--duration")) {
+                duration = Duration.ofSeconds(Integer.parseInt(argsList.pop()));
+            } else if (arg.equals("--batch-size")) {
+                batchSize = Integer.parseInt(argsList.pop());
+            } else if (arg.equals("--accounts")) {
+                accounts = Integer.parseInt(argsList.pop());
+            } else if (arg.equals("--check-interval")) {
+                checkInterval = Duration.ofSeconds(Integer.parseInt(argsList.pop()));
             } else if (arg.equals("--verbose")) {
                 verbose = true;
             } else if (arg.equals("--url")) {
@@ -102,17 +144,22 @@ public class JdbiApplication {
             } else if (arg.equals("--user")) {
                 hikariDS.setUsername(argsList.pop());
             } else if (arg.equals("--password")) {
-                hikariDS.setUsername(argsList.pop());
+                hikariDS.setPassword(argsList.pop());
+            } else if (arg.equals("--max-attempts")) {
+                transactionHandler.setMaxAttempts(Integer.parseInt(argsList.pop()));
+            } else if (arg.equals("--deadline")) {
+                transactionHandler.setDeadline(Duration.ofSeconds(Integer.parseInt(argsList.pop())));
             } else if (arg.equals("--pool-size")) {
-                int size = Integer.parseInt(argsList.pop());
-                hikariDS.setMaximumPoolSize(size);
-                hikariDS.setMinimumIdle(size);
+                poolSize = Integer.parseInt(argsList.pop());
             } else {
                 System.out.println("Bad option: " + arg);
                 System.exit(1);
             }
         }
 
+        // One connection per worker unless given
+        hikariDS.setMaximumPoolSize(poolSize > 0 ? poolSize : workers);
+        hikariDS.setMinimumIdle(poolSize > 0 ? poolSize : workers);
         hikariDS.setAutoCommit(true); // Setting it to false will mess up JDBI
 
         DataSource ds = verbose ?
@@ -123,86 +170,75 @@ public class JdbiApplication {
                         .multiline()
                         .build() : hikariDS;
 
+        // Shared by all workers
         Jdbi jdbi = Jdbi.create(ds);
-        jdbi.setTransactionHandler(new SerializableTransactionRunner());
+        jdbi.installPlugin(new SqlObjectPlugin());
+        jdbi.setTransactionHandler(transactionHandler);
 
         SchemaSupport.setupSchema(jdbi);
+        SchemaSupport.createAccounts(jdbi, accounts);
 
-        List<String> names = jdbi.withHandle(JdbiApplication::readAccountNames);
+        // Too noisy for large account sets
+        final boolean printBalances = accounts <= 100;
 
-        names.forEach(name -> {
-            BigDecimal balance = jdbi.withHandle(handle -> readBalance(handle, name));
-            System.out.printf("Balance before for %s: %s\n", name, balance);
-        });
+        if (printBalances) {
+            printBalances(jdbi, "before");
+        }
 
         final BigDecimal initialBalance = jdbi.withHandle(JdbiApplication::readTotalBalance);
         System.out.printf("Total balance before: %s\n", initialBalance);
 
+        final InvariantChecker invariantChecker = new InvariantChecker(ds, initialBalance)
+                .start(checkInterval);
+
         // Run concurrently for more exiting effects
         final ExecutorService executorService = Executors.newFixedThreadPool(workers);
-        final Deque<Future<BigDecimal>> futures = new ArrayDeque<>();
+        final CompletionAggregator aggregator = new CompletionAggregator(executorService);
 
-        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int transfersPerTransaction = batchSize;
+        final int numAccounts = accounts;
 
-        final int totalWorkers = iterations;
-
-        IntStream.rangeClosed(1, totalWorkers).forEach(
-                value -> futures.add(executorService.submit(() -> {
-                            List<Account> legs = new ArrayList<>();
-
-                            IntStream.rangeClosed(1, 4).forEach(leg -> {
-                                String from = "customer:" + random.nextInt(1, 100);
-                                String to = "customer:" + random.nextInt(1, 100);
-                                if (!from.equals(to)) {
-                                    BigDecimal amt = new BigDecimal("0.15");
-                                    legs.add(new Account(from, amt));
-                                    legs.add(new Account(to, amt.negate()));
-                                }
-                            });
-
-                            System.out.printf("%,8d/%d done\n", value, totalWorkers);
-
-                            return transfer(ds, legs);
-                        }
-                )));
-
-        int success = 0;
-        int fail = 0;
-        BigDecimal total = BigDecimal.ZERO;
-        while (!futures.isEmpty()) {
-            System.out.printf("Awaiting completion (%d futures remains)\n", futures.size());
-            try {
-                BigDecimal tot = futures.pop().get();
-                total = total.add(tot);
-                success++;
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (ExecutionException e) {
-                e.getCause().printStackTrace();
-                fail++;
+        final Callable<BigDecimal> task = () -> {
+            List<List<Account>> transfers = new ArrayList<>();
+            for (int i = 0; i < transfersPerTransaction; i++) {
+                transfers.add(randomLegs(numAccounts));
             }
+            return transfer(jdbi, transfers);
+        };
+
+        if (duration != null) {
+            aggregator.runFor(duration, workers, () -> task, 1, TimeUnit.SECONDS);
+        } else {
+            IntStream.rangeClosed(1, iterations).forEach(value -> aggregator.submit(task));
+            aggregator.awaitCompletion(1, TimeUnit.SECONDS);
         }
 
         executorService.shutdownNow();
+        invariantChecker.close();
 
-        names.forEach(name -> {
-            BigDecimal balance = jdbi.withHandle(handle -> readBalance(handle, name));
-            System.out.printf("Balance after for %s: %s\n", name, balance);
-        });
+        if (printBalances) {
+            printBalances(jdbi, "after");
+        }
 
         final BigDecimal finalBalance = jdbi.withHandle(JdbiApplication::readTotalBalance);
 
         System.out.println();
-        System.out.printf("Transaction success: %d\n", success);
-        System.out.printf("Transaction fail: %d\n", fail);
-        System.out.printf("Total turnover: %s\n", total);
+        System.out.printf("Transaction success: %d\n", aggregator.getSuccess());
+        System.out.printf("Transaction fail: %d\n", aggregator.getFail());
+        System.out.printf("Transfers: %d (%d per transaction)\n", aggregator.getSuccess() * batchSize, batchSize);
+        System.out.printf("Total turnover: %s\n", aggregator.getTurnover());
         System.out.printf("Total balance before: %s\n", initialBalance);
         System.out.printf("Total balance after: %s\n", finalBalance);
+        System.out.printf("Retries: %s\n", retryMetrics);
+
+        System.out.printf("Invariant checks: %d violations: %d\n",
+                invariantChecker.getChecks(), invariantChecker.getViolations());
 
         if (!finalBalance.equals(initialBalance)) {
             System.out.println("Balance invariant violation! (╯°□°)╯︵ ┻━┻");
             System.out.printf("Lost funds: %s\n", initialBalance.subtract(finalBalance));
+        } else if (invariantChecker.getViolations() > 0) {
+            System.out.println("Balance invariant violation during transfers! (╯°□°)╯︵ ┻━┻");
         } else {
             System.out.println("¯\\_(ツ)_/¯");
         }
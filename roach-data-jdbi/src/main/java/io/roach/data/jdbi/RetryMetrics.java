@@ -0,0 +1,56 @@
+package io.roach.data.jdbi;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retry listener aggregating per-transaction retry statistics.
+ */
+public class RetryMetrics implements RetryingTransactionHandler.RetryListener {
+    private final LongAdder transactions = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder giveUps = new LongAdder();
+
+    private final LongAdder backoffMillis = new LongAdder();
+
+    private final LongAdder elapsedNanos = new LongAdder();
+
+    private final LongAccumulator maxAttempts = new LongAccumulator(Math::max, 0);
+
+    private final Map<String, LongAdder> sqlStates = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRetry(int attempt, long backoffMillis, SQLException ex) {
+        this.retries.increment();
+        this.backoffMillis.add(backoffMillis);
+        this.sqlStates.computeIfAbsent(ex.getSQLState(), k -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void onCompletion(int attempts, long elapsedNanos, RetryingTransactionHandler.Outcome outcome) {
+        this.transactions.increment();
+        this.elapsedNanos.add(elapsedNanos);
+        this.maxAttempts.accumulate(attempts);
+        if (outcome == RetryingTransactionHandler.Outcome.ATTEMPTS_EXHAUSTED
+                || outcome == RetryingTransactionHandler.Outcome.DEADLINE_EXCEEDED) {
+            this.giveUps.increment();
+        }
+    }
+
+    @Override
+    public String toString() {
+        long count = Math.max(1, transactions.sum());
+        return String.format("transactions: %d retries: %d (%.3f per transaction) give-ups: %d "
+                        + "max attempts: %d total backoff: %d ms avg latency: %.2f ms sql states: %s",
+                transactions.sum(), retries.sum(), retries.sum() / (double) count, giveUps.sum(),
+                maxAttempts.get(), backoffMillis.sum(),
+                TimeUnit.NANOSECONDS.toMicros(elapsedNanos.sum()) / 1000.0 / count,
+                sqlStates);
+    }
+}
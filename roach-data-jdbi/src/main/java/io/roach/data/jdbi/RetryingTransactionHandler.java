@@ -0,0 +1,217 @@
+package io.roach.data.jdbi;
+
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
+import org.jdbi.v3.core.transaction.DelegatingTransactionHandler;
+import org.jdbi.v3.core.transaction.LocalTransactionHandler;
+import org.jdbi.v3.core.transaction.TransactionHandler;
+import org.jdbi.v3.core.transaction.TransactionIsolationLevel;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transaction handler retrying transient errors, as an alternative to JDBI's
+ * SerializableTransactionRunner which retries immediately. Retries are delayed by
+ * capped exponential backoff with full jitter and bounded by both a max number of
+ * attempts and a deadline.
+ * <p>
+ * By default, only serialization failures (40001) are retried which is what CockroachDB
+ * uses for all transaction retry errors. The SQL state is looked up through the entire
+ * cause chain since JDBI wraps driver exceptions.
+ * <p>
+ * Nested transactions are never retried, only the outermost one.
+ */
+public class RetryingTransactionHandler extends DelegatingTransactionHandler {
+    public enum Outcome {
+        SUCCESS,
+        /**
+         * Failed with a non-retryable error, or interrupted while backing off.
+         */
+        FAILURE,
+        /**
+         * Gave up on a retryable error after the max number of attempts.
+         */
+        ATTEMPTS_EXHAUSTED,
+        /**
+         * Gave up on a retryable error since the next attempt would pass the deadline.
+         */
+        DEADLINE_EXCEEDED
+    }
+
+    /**
+     * Callback for per-transaction retry events.
+     */
+    public interface RetryListener {
+        /**
+         * Called when an attempt failed with a retryable error, before backing off.
+         */
+        default void onRetry(int attempt, long backoffMillis, SQLException ex) {
+        }
+
+        /**
+         * Called when the transaction completed, successfully or not.
+         */
+        default void onCompletion(int attempts, long elapsedNanos, Outcome outcome) {
+        }
+    }
+
+    @FunctionalInterface
+    private interface Attempt<R, X extends Exception> {
+        R run() throws X;
+    }
+
+    private int maxAttempts = 10;
+
+    private Duration deadline = Duration.ofSeconds(30);
+
+    private long baseBackoffMillis = 50;
+
+    private long maxBackoffMillis = 5000;
+
+    private Set<String> retryableStates = new HashSet<>(Arrays.asList("40001"));
+
+    private final List<RetryListener> listeners;
+
+    public RetryingTransactionHandler() {
+        this(new LocalTransactionHandler());
+    }
+
+    public RetryingTransactionHandler(TransactionHandler delegate) {
+        super(delegate);
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    private RetryingTransactionHandler(TransactionHandler delegate, RetryingTransactionHandler settings) {
+        super(delegate);
+        this.maxAttempts = settings.maxAttempts;
+        this.deadline = settings.deadline;
+        this.baseBackoffMillis = settings.baseBackoffMillis;
+        this.maxBackoffMillis = settings.maxBackoffMillis;
+        this.retryableStates = settings.retryableStates;
+        this.listeners = settings.listeners;
+    }
+
+    public RetryingTransactionHandler setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * @param deadline max time for all attempts including backoff delays
+     */
+    public RetryingTransactionHandler setDeadline(Duration deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    public RetryingTransactionHandler setBackoff(long baseBackoffMillis, long maxBackoffMillis) {
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        return this;
+    }
+
+    public RetryingTransactionHandler setRetryableStates(String... retryableStates) {
+        this.retryableStates = new HashSet<>(Arrays.asList(retryableStates));
+        return this;
+    }
+
+    public RetryingTransactionHandler addListener(RetryListener listener) {
+        this.listeners.add(listener);
+        return this;
+    }
+
+    @Override
+    public <R, X extends Exception> R inTransaction(Handle handle,
+                                                    HandleCallback<R, X> callback) throws X {
+        if (isInTransaction(handle)) {
+            return getDelegate().inTransaction(handle, callback);
+        }
+        return retry(() -> getDelegate().inTransaction(handle, callback));
+    }
+
+    @Override
+    public <R, X extends Exception> R inTransaction(Handle handle,
+                                                    TransactionIsolationLevel level,
+                                                    HandleCallback<R, X> callback) throws X {
+        if (isInTransaction(handle)) {
+            return getDelegate().inTransaction(handle, level, callback);
+        }
+        return retry(() -> getDelegate().inTransaction(handle, level, callback));
+    }
+
+    @Override
+    public TransactionHandler specialize(Handle handle) throws SQLException {
+        return new RetryingTransactionHandler(getDelegate().specialize(handle), this);
+    }
+
+    private <R, X extends Exception> R retry(Attempt<R, X> attempt) throws X {
+        final long startTime = System.nanoTime();
+        final long deadlineNanos = startTime + deadline.toNanos();
+
+        for (int n = 1; ; n++) {
+            try {
+                R result = attempt.run();
+                notifyCompletion(n, startTime, Outcome.SUCCESS);
+                return result;
+            } catch (Exception e) {
+                SQLException sqlException = findRetryableException(e);
+                if (sqlException == null) {
+                    notifyCompletion(n, startTime, Outcome.FAILURE);
+                    throw e;
+                }
+                if (n >= maxAttempts) {
+                    notifyCompletion(n, startTime, Outcome.ATTEMPTS_EXHAUSTED);
+                    throw e;
+                }
+
+                long backoffMillis = backoffMillis(n);
+
+                if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis) >= deadlineNanos) {
+                    notifyCompletion(n, startTime, Outcome.DEADLINE_EXCEEDED);
+                    throw e;
+                }
+
+                for (RetryListener listener : listeners) {
+                    listener.onRetry(n, backoffMillis, sqlException);
+                }
+
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    notifyCompletion(n, startTime, Outcome.FAILURE);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private SQLException findRetryableException(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SQLException && retryableStates.contains(((SQLException) t).getSQLState())) {
+                return (SQLException) t;
+            }
+        }
+        return null;
+    }
+
+    private void notifyCompletion(int attempts, long startTime, Outcome outcome) {
+        long elapsedNanos = System.nanoTime() - startTime;
+        for (RetryListener listener : listeners) {
+            listener.onCompletion(attempts, elapsedNanos, outcome);
+        }
+    }
+}
@@ -34,4 +34,16 @@ public abstract class SchemaSupport {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Create any missing accounts up to the given number, in addition to the ones
+     * created by the schema script.
+     */
+    public static void createAccounts(Jdbi jdbi, int accounts) {
+        jdbi.useHandle(handle -> handle.createUpdate("INSERT INTO account (id, balance, name) "
+                        + "SELECT i, 5000.00, concat('customer:', (i::varchar)) FROM generate_series(1, :accounts) AS i "
+                        + "ON CONFLICT (id) DO NOTHING")
+                .bind("accounts", accounts)
+                .execute());
+    }
 }
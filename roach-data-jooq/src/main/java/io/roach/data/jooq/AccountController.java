@@ -1,13 +1,24 @@
 package io.roach.data.jooq;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.PagedModel;
 import org.springframework.hateoas.RepresentationModel;
@@ -15,12 +26,18 @@ import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 import io.roach.data.jooq.model.tables.records.AccountRecord;
 
@@ -30,12 +47,19 @@ import static org.springframework.transaction.annotation.Propagation.REQUIRES_NE
 
 @RestController
 class AccountController {
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Autowired
     private AccountRepository accountRepository;
 
     @Autowired
     private PagedResourcesAssembler<AccountRecord> pagedResourcesAssembler;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
     @GetMapping
     public ResponseEntity<RepresentationModel> index() {
         RepresentationModel index = new RepresentationModel();
@@ -44,6 +68,14 @@ class AccountController {
                 .listAccounts(PageRequest.of(0, 5)))
                 .withRel("accounts"));
 
+        index.add(linkTo(methodOn(AccountController.class)
+                .listAccounts(AccountCursor.first(), 5))
+                .withRel("accounts-keyset"));
+
+        index.add(linkTo(AccountController.class)
+                .slash("account/export{?format,fetchSize}")
+                .withRel("export"));
+
         index.add(linkTo(AccountController.class)
                 .slash("transfer{?fromId,toId,amount}")
                 .withRel("transfer"));
@@ -59,6 +91,128 @@ class AccountController {
                 .ok(pagedResourcesAssembler.toModel(accountRepository.findAll(page), accountModelAssembler()));
     }
 
+    /**
+     * Provides a keyset (seek) paged representation of accounts ordered by id. Rather than
+     * skipping rows by offset, each page starts after the last id of the previous page which
+     * is passed around as an opaque cursor in the next link. The page latency is therefore
+     * independent of depth and no count query is needed.
+     */
+    @GetMapping(value = "/account", params = "cursor")
+    @Transactional(propagation = REQUIRES_NEW)
+    public HttpEntity<CollectionModel<AccountModel>> listAccounts(
+            @RequestParam("cursor") String cursor,
+            @RequestParam(value = "size", defaultValue = "5") int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        long lastId;
+        try {
+            lastId = AccountCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        Slice<AccountRecord> slice = accountRepository.findAllAfter(lastId, size);
+
+        CollectionModel<AccountModel> model = accountModelAssembler().toCollectionModel(slice);
+        model.add(linkTo(methodOn(AccountController.class)
+                .listAccounts(cursor, size))
+                .withSelfRel());
+        model.add(linkTo(methodOn(AccountController.class)
+                .listAccounts(AccountCursor.first(), size))
+                .withRel(IanaLinkRelations.FIRST));
+        if (slice.hasNext()) {
+            AccountRecord last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            model.add(linkTo(methodOn(AccountController.class)
+                    .listAccounts(AccountCursor.encode(last.getId()), size))
+                    .withRel(IanaLinkRelations.NEXT));
+        }
+
+        return ResponseEntity.ok(model);
+    }
+
+    /**
+     * Streams all accounts ordered by id as newline delimited JSON or CSV, written to the
+     * response as rows are fetched from a lazy cursor rather than materialized as a list.
+     * <p>
+     * The transaction is demarcated programmatically and not through {@code @Transactional},
+     * since a retry after part of the response is written would duplicate rows.
+     */
+    @GetMapping(value = "/account/export")
+    public void exportAccounts(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "fetchSize", defaultValue = "1024") int fetchSize,
+            HttpServletResponse response) throws IOException {
+        if (!"ndjson".equals(format) && !"csv".equals(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format: " + format);
+        }
+        if (fetchSize <= 0 || fetchSize > 10_000) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fetch size must be between 1 and 10000");
+        }
+
+        response.setContentType("csv".equals(format) ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"accounts." + format + "\"");
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8))) {
+            if ("csv".equals(format)) {
+                writer.write("id,name,type,balance\n");
+                transactionTemplate.executeWithoutResult(status ->
+                        accountRepository.forEach(fetchSize, record -> writeCsv(writer, record)));
+            } else {
+                try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    generator.setRootValueSeparator(null);
+                    transactionTemplate.executeWithoutResult(status ->
+                            accountRepository.forEach(fetchSize, record -> writeJson(generator, record)));
+                }
+            }
+        }
+    }
+
+    private static void writeCsv(Writer writer, AccountRecord record) {
+        try {
+            writer.write(String.valueOf(record.getId()));
+            writer.write(',');
+            writer.write(csvValue(record.getName()));
+            writer.write(',');
+            writer.write(csvValue(record.getType()));
+            writer.write(',');
+            writer.write(record.getBalance().toPlainString());
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String csvValue(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void writeJson(JsonGenerator generator, AccountRecord record) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", record.getId());
+            generator.writeStringField("name", record.getName());
+            generator.writeStringField("type", record.getType());
+            generator.writeNumberField("balance", record.getBalance());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @GetMapping(value = "/account/{id}")
     @Transactional(propagation = REQUIRES_NEW)
     public HttpEntity<AccountModel> getAccount(@PathVariable("id") Long accountId) {
@@ -80,14 +234,11 @@ class AccountController {
             throw new IllegalArgumentException("From and to accounts must be different");
         }
 
-        BigDecimal fromBalance = accountRepository.getBalance(fromId);
-        if (fromBalance.add(amount.negate()).compareTo(BigDecimal.ZERO) < 0) {
-            throw new NegativeBalanceException("Insufficient funds " + amount + " for account " + fromId);
+        // Guarded debit and credit without a locking read. A rejected debit rolls back the credit.
+        if (!accountRepository.transfer(fromId, toId, amount)) {
+            throw new NegativeBalanceException("Insufficient funds " + amount + " or no such account " + fromId);
         }
 
-        accountRepository.updateBalance(fromId, amount.negate());
-        accountRepository.updateBalance(toId, amount);
-
         return ResponseEntity.ok().build();
     }
 
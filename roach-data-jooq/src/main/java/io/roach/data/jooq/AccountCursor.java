@@ -0,0 +1,33 @@
+package io.roach.data.jooq;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination. The cursor encodes the id of the last
+ * account seen by the client, which is treated as an opaque token in links.
+ */
+public final class AccountCursor {
+    private AccountCursor() {
+    }
+
+    /**
+     * Cursor pointing before the first account.
+     */
+    public static String first() {
+        return encode(Long.MIN_VALUE);
+    }
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long decode(String cursor) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -1,18 +1,49 @@
 package io.roach.data.jooq;
 
 import java.math.BigDecimal;
+import java.util.function.Consumer;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import io.roach.data.jooq.model.tables.records.AccountRecord;
 
 public interface AccountRepository {
     Page<AccountRecord> findAll(Pageable pageable);
 
+    /**
+     * Find accounts ordered by id using keyset pagination (seek method), starting after
+     * the given id. Unlike offset pagination, the cost is independent of page depth and no
+     * count query is issued.
+     *
+     * @param lastId the last id of the previous page
+     * @param pageSize max number of accounts
+     * @return a slice of accounts telling if there's a next page
+     */
+    Slice<AccountRecord> findAllAfter(long lastId, int pageSize);
+
+    /**
+     * Stream all accounts ordered by id through a lazy cursor, holding at most one batch of
+     * fetch size rows in memory at a time. The fetch size only applies within an explicit
+     * transaction, otherwise the driver buffers the entire result.
+     *
+     * @param fetchSize number of rows fetched per round trip
+     * @param action invoked for each account
+     */
+    void forEach(int fetchSize, Consumer<AccountRecord> action);
+
     AccountRecord getOne(Long id);
 
     BigDecimal getBalance(Long id);
 
     void updateBalance(Long id, BigDecimal balance);
+
+    /**
+     * Debit and credit two accounts with a single statement, where the debit is guarded by
+     * the balance to avoid going negative.
+     *
+     * @return false if the debit was rejected for insufficient funds or no such account
+     */
+    boolean transfer(Long fromId, Long toId, BigDecimal amount);
 }
@@ -0,0 +1,130 @@
+package io.roach.data.jooq;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jooq.Context;
+import org.jooq.DSLContext;
+import org.jooq.Param;
+import org.jooq.Query;
+import org.jooq.Record;
+import org.jooq.ResultQuery;
+import org.jooq.SQL;
+import org.jooq.VisitContext;
+import org.jooq.impl.CustomQueryPart;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultVisitListener;
+
+/**
+ * A query built with the type-safe DSL and named parameters, rendered to SQL once and then
+ * executed with new bind values on every call. This skips rebuilding the query model and
+ * rendering it on hot paths, while still going through the DSL context for execution (so
+ * execute listeners and exception translation still apply).
+ * <p>
+ * The rendered SQL is kept as the fragments between the bind parameters, located while
+ * rendering rather than by parsing the SQL. On execution, the fragments are written as is
+ * and only the bind parameters are rendered and bound. Instances are immutable and thread safe.
+ */
+public class CachedQuery {
+    private final String sql;
+
+    // SQL before each parameter, and after the last one
+    private final List<String> fragments = new ArrayList<>();
+
+    // In bind order
+    private final List<Param<?>> params = new ArrayList<>();
+
+    public CachedQuery(DSLContext dsl, Query query) {
+        List<Integer> offsets = new ArrayList<>();
+
+        this.sql = DSL.using(dsl.configuration().derive(new DefaultVisitListener() {
+            private int depth;
+
+            @Override
+            public void visitStart(VisitContext ctx) {
+                if (isBindParam(ctx) && depth++ == 0) {
+                    offsets.add(ctx.renderContext().render().length());
+                    params.add((Param<?>) ctx.queryPart());
+                }
+            }
+
+            @Override
+            public void visitEnd(VisitContext ctx) {
+                if (isBindParam(ctx) && --depth == 0) {
+                    offsets.add(ctx.renderContext().render().length());
+                }
+            }
+        })).render(query);
+
+        int start = 0;
+        for (int i = 0; i < offsets.size(); i += 2) {
+            fragments.add(sql.substring(start, offsets.get(i)));
+            start = offsets.get(i + 1);
+        }
+        fragments.add(sql.substring(start));
+
+        for (Param<?> param : params) {
+            if (param.getParamName() == null) {
+                throw new IllegalArgumentException("Bind parameters must be named: " + query);
+            }
+        }
+    }
+
+    private static boolean isBindParam(VisitContext ctx) {
+        return ctx.renderContext() != null
+                && ctx.queryPart() instanceof Param
+                && !((Param<?>) ctx.queryPart()).isInline();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @param namesAndValues parameter names followed by their values
+     */
+    public Query query(DSLContext dsl, Object... namesAndValues) {
+        return dsl.query(new BoundSql(bindValues(namesAndValues)));
+    }
+
+    /**
+     * @param namesAndValues parameter names followed by their values
+     */
+    public ResultQuery<Record> resultQuery(DSLContext dsl, Object... namesAndValues) {
+        return dsl.resultQuery(new BoundSql(bindValues(namesAndValues)));
+    }
+
+    private Param<?>[] bindValues(Object... namesAndValues) {
+        Param<?>[] values = new Param<?>[params.size()];
+        for (int i = 0; i < values.length; i++) {
+            Param<?> param = params.get(i);
+            values[i] = DSL.val(valueOf(param.getParamName(), namesAndValues), param.getDataType());
+        }
+        return values;
+    }
+
+    private static Object valueOf(String name, Object... namesAndValues) {
+        for (int i = 0; i < namesAndValues.length - 1; i += 2) {
+            if (name.equals(namesAndValues[i])) {
+                return namesAndValues[i + 1];
+            }
+        }
+        throw new IllegalArgumentException("No value for parameter: " + name);
+    }
+
+    private class BoundSql extends CustomQueryPart implements SQL {
+        private final Param<?>[] values;
+
+        BoundSql(Param<?>[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public void accept(Context<?> ctx) {
+            for (int i = 0; i < values.length; i++) {
+                ctx.sql(fragments.get(i), true).visit(values[i]);
+            }
+            ctx.sql(fragments.get(values.length), true);
+        }
+    }
+}
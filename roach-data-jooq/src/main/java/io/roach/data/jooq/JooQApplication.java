@@ -30,6 +30,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.Ordered;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
 import org.springframework.hateoas.Link;
@@ -39,6 +40,8 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+import io.roach.data.support.RetryMetrics;
+
 @EnableAutoConfiguration
 @EnableHypermediaSupport(type = EnableHypermediaSupport.HypermediaType.HAL)
 @EnableAspectJAutoProxy(proxyTargetClass = true)
@@ -46,12 +49,16 @@ import org.springframework.web.client.RestTemplate;
 @EnableTransactionManagement(order = Ordered.LOWEST_PRECEDENCE - 1)
 @Configuration
 @ComponentScan(basePackageClasses = JooQApplication.class)
+@Import(RetryMetrics.class)
 public class JooQApplication implements CommandLineRunner {
     protected static final Logger logger = LoggerFactory.getLogger(JooQApplication.class);
 
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private QueryMetricsListener queryMetricsListener;
+
     public static void main(String[] args) {
         new SpringApplicationBuilder(JooQApplication.class)
                 .web(WebApplicationType.SERVLET)
@@ -72,7 +79,9 @@ public class JooQApplication implements CommandLineRunner {
     public DefaultConfiguration configuration() {
         DefaultConfiguration configuration = new DefaultConfiguration();
         configuration.set(connectionProvider());
-        configuration.set(new DefaultExecuteListenerProvider(new JooqExceptionTranslator()));
+        configuration.set(
+                new DefaultExecuteListenerProvider(new JooqExceptionTranslator()),
+                new DefaultExecuteListenerProvider(queryMetricsListener));
         configuration.setSQLDialect(SQLDialect.POSTGRES); // TODO! free trial needed for CRDB dialect?
         configuration.schemaMapping().use(""); // TODO! deprecation without reference?
         configuration.settings().setRenderQuotedNames(RenderQuotedNames.NEVER);
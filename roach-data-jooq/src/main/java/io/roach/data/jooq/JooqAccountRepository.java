@@ -2,18 +2,33 @@ package io.roach.data.jooq;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Consumer;
 
+import javax.annotation.PostConstruct;
+
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record2;
+import org.jooq.Table;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import io.roach.data.jooq.model.tables.records.AccountRecord;
 
 import static io.roach.data.jooq.model.Tables.ACCOUNT;
+import static org.jooq.impl.DSL.inline;
+import static org.jooq.impl.DSL.param;
+import static org.jooq.impl.DSL.row;
+import static org.jooq.impl.DSL.values;
 import static org.springframework.transaction.annotation.Propagation.MANDATORY;
 
 @Repository
@@ -22,13 +37,76 @@ public class JooqAccountRepository implements AccountRepository {
     @Autowired
     private DSLContext dsl;
 
+    // Queries on the transfer path, rendered once
+    private CachedQuery getBalanceQuery;
+
+    private CachedQuery creditQuery;
+
+    private CachedQuery transferQuery;
+
+    @PostConstruct
+    public void init() {
+        getBalanceQuery = new CachedQuery(dsl, dsl.select(ACCOUNT.BALANCE)
+                .from(ACCOUNT)
+                .where(ACCOUNT.ID.eq(param("id", Long.class)))
+                .forUpdate());
+
+        creditQuery = new CachedQuery(dsl, dsl.update(ACCOUNT)
+                .set(ACCOUNT.BALANCE, ACCOUNT.BALANCE.plus(param("amount", BigDecimal.class)))
+                .where(ACCOUNT.ID.eq(param("id", Long.class))));
+
+        // Debit and credit in one statement, where the debit matches no row if the funds are insufficient
+        Table<Record2<Long, BigDecimal>> legs = values(
+                row(param("fromId", Long.class), param("debit", BigDecimal.class)),
+                row(param("toId", Long.class), param("credit", BigDecimal.class)))
+                .as("v", "id", "delta");
+        Field<Long> legId = legs.field("id", Long.class);
+        Field<BigDecimal> legDelta = legs.field("delta", BigDecimal.class);
+
+        transferQuery = new CachedQuery(dsl, dsl.update(ACCOUNT)
+                .set(ACCOUNT.BALANCE, ACCOUNT.BALANCE.plus(legDelta))
+                .from(legs)
+                .where(ACCOUNT.ID.eq(legId))
+                .and(ACCOUNT.BALANCE.plus(legDelta).ge(inline(BigDecimal.ZERO)))
+                .returning(ACCOUNT.ID));
+    }
+
     @Override
     public Page<AccountRecord> findAll(Pageable pageable) {
-        List<AccountRecord> accountRecords = dsl.selectFrom(ACCOUNT).limit(pageable.getPageSize())
+        List<AccountRecord> accountRecords = dsl.selectFrom(ACCOUNT)
+                .orderBy(ACCOUNT.ID)
+                .limit(pageable.getPageSize())
                 .offset(pageable.getOffset())
                 .fetchInto(AccountRecord.class);
-        long totalRecords = dsl.fetchCount(dsl.select().from(ACCOUNT));
-        return new PageImpl<>(accountRecords, pageable, totalRecords);
+        // Count only when the total can't be derived from the page itself
+        return PageableExecutionUtils.getPage(accountRecords, pageable,
+                () -> dsl.fetchCount(ACCOUNT));
+    }
+
+    @Override
+    public Slice<AccountRecord> findAllAfter(long lastId, int pageSize) {
+        // Fetch one extra row to tell if there's a next page
+        List<AccountRecord> accountRecords = dsl.selectFrom(ACCOUNT)
+                .orderBy(ACCOUNT.ID)
+                .seek(lastId)
+                .limit(pageSize + 1)
+                .fetchInto(AccountRecord.class);
+
+        boolean hasNext = accountRecords.size() > pageSize;
+        if (hasNext) {
+            accountRecords = accountRecords.subList(0, pageSize);
+        }
+        return new SliceImpl<>(accountRecords, PageRequest.of(0, pageSize), hasNext);
+    }
+
+    @Override
+    public void forEach(int fetchSize, Consumer<AccountRecord> action) {
+        try (Cursor<AccountRecord> cursor = dsl.selectFrom(ACCOUNT)
+                .orderBy(ACCOUNT.ID)
+                .fetchSize(fetchSize)
+                .fetchLazy()) {
+            cursor.forEach(action);
+        }
     }
 
     @Override
@@ -40,19 +118,28 @@ public class JooqAccountRepository implements AccountRepository {
 
     @Override
     public BigDecimal getBalance(Long id) {
-        return dsl.select(ACCOUNT.BALANCE)
-                .from(ACCOUNT)
-                .where(ACCOUNT.ID.eq(id))
-                .forUpdate()
+        return getBalanceQuery.resultQuery(dsl, "id", id)
                 .fetchOne()
-                .value1();
+                .get(0, BigDecimal.class);
     }
 
     @Override
     public void updateBalance(Long id, BigDecimal balance) {
-        dsl.update(ACCOUNT)
-                .set(ACCOUNT.BALANCE, ACCOUNT.BALANCE.plus(balance))
-                .where(ACCOUNT.ID.eq(id))
+        creditQuery.query(dsl, "id", id, "amount", balance)
                 .execute();
     }
+
+    @Override
+    public boolean transfer(Long fromId, Long toId, BigDecimal amount) {
+        List<Long> updated = transferQuery.resultQuery(dsl,
+                "fromId", fromId, "debit", amount.negate(),
+                "toId", toId, "credit", amount)
+                .fetch(0, Long.class);
+
+        if (!updated.contains(toId)) {
+            throw new DataRetrievalFailureException("No such account: " + toId);
+        }
+
+        return updated.contains(fromId);
+    }
 }
@@ -0,0 +1,240 @@
+package io.roach.data.jooq;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.Query;
+import org.jooq.conf.ParamType;
+import org.jooq.conf.SettingsTools;
+import org.jooq.conf.StatementType;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * jOOQ execute listener recording per query shape timings of the render, prepare, bind,
+ * execute and fetch phases, rows fetched and SQL state on failure. The query shape is the
+ * rendered SQL with bind placeholders, for example:
+ * <pre>
+ * /actuator/metrics/roach.jooq.phase?tag=phase:execute
+ * </pre>
+ * Statements with inlined values are rendered again with placeholders for the tag, until
+ * the number of shapes reaches its limit and further ones are tagged as 'other'. Queries
+ * slower than the threshold end-to-end are logged with their SQL.
+ * <p>
+ * A single instance is shared by all executions, so per-execution state is kept in the
+ * execute context.
+ */
+@Component
+public class QueryMetricsListener extends DefaultExecuteListener {
+    private static final Logger logger = LoggerFactory.getLogger(QueryMetricsListener.class);
+
+    private static final String OTHER_QUERY = "other";
+
+    private enum Phase {
+        RENDER,
+        PREPARE,
+        BIND,
+        EXECUTE,
+        FETCH
+    }
+
+    private static class Timings {
+        final long startNanos = System.nanoTime();
+
+        final long[] phaseNanos = new long[Phase.values().length];
+
+        long markNanos;
+
+        long rows;
+
+        void begin() {
+            markNanos = System.nanoTime();
+        }
+
+        void end(Phase phase) {
+            phaseNanos[phase.ordinal()] += System.nanoTime() - markNanos;
+        }
+    }
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${roach.jooq.slow-query-threshold-millis:500}")
+    private long slowQueryThresholdMillis;
+
+    // Bounds the number of query tags in case of plain SQL with literals
+    @Value("${roach.jooq.max-query-shapes:256}")
+    private int maxQueryShapes;
+
+    // Off by default since there's a histogram per query shape and phase
+    @Value("${roach.jooq.percentile-histogram:false}")
+    private boolean percentileHistogram;
+
+    private final Set<String> queryShapes = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void start(ExecuteContext ctx) {
+        ctx.data(Timings.class, new Timings());
+    }
+
+    @Override
+    public void renderStart(ExecuteContext ctx) {
+        timings(ctx).begin();
+    }
+
+    @Override
+    public void renderEnd(ExecuteContext ctx) {
+        timings(ctx).end(Phase.RENDER);
+    }
+
+    @Override
+    public void prepareStart(ExecuteContext ctx) {
+        timings(ctx).begin();
+    }
+
+    @Override
+    public void prepareEnd(ExecuteContext ctx) {
+        timings(ctx).end(Phase.PREPARE);
+    }
+
+    @Override
+    public void bindStart(ExecuteContext ctx) {
+        timings(ctx).begin();
+    }
+
+    @Override
+    public void bindEnd(ExecuteContext ctx) {
+        timings(ctx).end(Phase.BIND);
+    }
+
+    @Override
+    public void executeStart(ExecuteContext ctx) {
+        timings(ctx).begin();
+    }
+
+    @Override
+    public void executeEnd(ExecuteContext ctx) {
+        timings(ctx).end(Phase.EXECUTE);
+    }
+
+    @Override
+    public void fetchStart(ExecuteContext ctx) {
+        timings(ctx).begin();
+    }
+
+    @Override
+    public void recordEnd(ExecuteContext ctx) {
+        timings(ctx).rows++;
+    }
+
+    @Override
+    public void fetchEnd(ExecuteContext ctx) {
+        timings(ctx).end(Phase.FETCH);
+    }
+
+    @Override
+    public void exception(ExecuteContext ctx) {
+        SQLException ex = ctx.sqlException();
+        registry.counter("roach.jooq.errors",
+                "query", queryShape(ctx),
+                "sqlstate", ex != null && ex.getSQLState() != null ? ex.getSQLState() : "unknown").increment();
+    }
+
+    @Override
+    public void end(ExecuteContext ctx) {
+        Timings timings = timings(ctx);
+        String query = queryShape(ctx);
+
+        for (Phase phase : Phase.values()) {
+            long nanos = timings.phaseNanos[phase.ordinal()];
+            if (nanos > 0) {
+                Timer.builder("roach.jooq.phase")
+                        .description("Time spent per query execution phase")
+                        .tags("query", query, "phase", phase.name().toLowerCase())
+                        .publishPercentileHistogram(percentileHistogram)
+                        .register(registry)
+                        .record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (ctx.resultSet() != null || timings.rows > 0) {
+            DistributionSummary.builder("roach.jooq.rows")
+                    .description("Rows fetched per query execution")
+                    .tag("query", query)
+                    .register(registry)
+                    .record(timings.rows);
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - timings.startNanos);
+        if (elapsedMillis >= slowQueryThresholdMillis) {
+            logger.warn("Slow query ({} ms, {} rows): {}", elapsedMillis, timings.rows, query);
+        }
+    }
+
+    private Timings timings(ExecuteContext ctx) {
+        Timings timings = (Timings) ctx.data(Timings.class);
+        if (timings == null) {
+            timings = new Timings();
+            ctx.data(Timings.class, timings);
+        }
+        return timings;
+    }
+
+    private String queryShape(ExecuteContext ctx) {
+        // Prepared statements already have bind placeholders, while static statements
+        // and multi-query batches have the values inlined
+        Query[] queries = ctx.batchQueries();
+        boolean inlined = queries.length > 0 && (queries.length > 1
+                || ctx.settings().getStatementType() == StatementType.STATIC_STATEMENT);
+
+        String sql;
+        if (!inlined) {
+            sql = ctx.sql() != null ? ctx.sql() : "";
+        } else if (queryShapes.size() >= maxQueryShapes) {
+            // Not worth rendering again once no new shapes are taken
+            return OTHER_QUERY;
+        } else {
+            sql = renderIndexed(ctx.configuration(), queries);
+        }
+
+        if (sql.isEmpty()) {
+            return OTHER_QUERY;
+        }
+        if (queryShapes.contains(sql)) {
+            return sql;
+        }
+        synchronized (queryShapes) {
+            if (queryShapes.size() >= maxQueryShapes && !queryShapes.contains(sql)) {
+                return OTHER_QUERY;
+            }
+            queryShapes.add(sql);
+        }
+        return sql;
+    }
+
+    private static String renderIndexed(Configuration configuration, Query[] queries) {
+        DSLContext dsl = DSL.using(configuration.derive(SettingsTools.clone(configuration.settings())
+                .withStatementType(StatementType.PREPARED_STATEMENT)
+                .withParamType(ParamType.INDEXED)));
+        return Arrays.stream(queries)
+                .map(dsl::render)
+                .distinct()
+                .collect(Collectors.joining("; "));
+    }
+}
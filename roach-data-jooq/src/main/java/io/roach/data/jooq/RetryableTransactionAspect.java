@@ -1,6 +1,7 @@
 package io.roach.data.jooq;
 
 import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.SQLException;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -9,6 +10,7 @@ import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.dao.ConcurrencyFailureException;
@@ -19,12 +21,17 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 
+import io.roach.data.support.RetryMetrics;
+
 @Component
 @Aspect
 @Order(Ordered.LOWEST_PRECEDENCE - 2)
 public class RetryableTransactionAspect {
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
+    @Autowired
+    private RetryMetrics retryMetrics;
+
     @Pointcut("execution(* io.roach..*(..)) && @annotation(transactional)")
     public void anyTransactionBoundaryOperation(Transactional transactional) {
     }
@@ -39,28 +46,47 @@ public class RetryableTransactionAspect {
 
         Assert.isTrue(!TransactionSynchronizationManager.isActualTransactionActive(), "TX active");
 
-        do {
-            try {
-                numAttempts++;
-                return pjp.proceed();
-            } catch (TransientDataAccessException | TransactionSystemException ex) {
-                handleTransientException(ex, numAttempts, totalRetries, pjp, backoffMillis);
-            } catch (UndeclaredThrowableException ex) {
-                Throwable t = ex.getUndeclaredThrowable();
-                if (t instanceof TransientDataAccessException) {
-                    handleTransientException(t, numAttempts, totalRetries, pjp, backoffMillis);
-                } else {
-                    throw ex;
+        final long callTime = System.nanoTime();
+
+        String outcome = RetryMetrics.OUTCOME_FAILURE;
+
+        try {
+            do {
+                try {
+                    numAttempts++;
+                    Object rv = pjp.proceed();
+                    outcome = RetryMetrics.OUTCOME_SUCCESS;
+                    return rv;
+                } catch (TransientDataAccessException | TransactionSystemException ex) {
+                    handleTransientException(ex, numAttempts, totalRetries, pjp, backoffMillis);
+                } catch (UndeclaredThrowableException ex) {
+                    Throwable t = ex.getUndeclaredThrowable();
+                    if (t instanceof TransientDataAccessException) {
+                        handleTransientException(t, numAttempts, totalRetries, pjp, backoffMillis);
+                    } else {
+                        throw ex;
+                    }
                 }
-            }
-        } while (numAttempts < totalRetries);
+            } while (numAttempts < totalRetries);
 
-        throw new ConcurrencyFailureException("Too many transient errors (" + numAttempts + ") for method ["
-                + pjp.getSignature().toLongString() + "]. Giving up!");
+            outcome = RetryMetrics.OUTCOME_GIVE_UP;
+
+            throw new ConcurrencyFailureException("Too many transient errors (" + numAttempts + ") for method ["
+                    + pjp.getSignature().toLongString() + "]. Giving up!");
+        } finally {
+            retryMetrics.recordCompletion(pjp.getSignature().toShortString(), numAttempts,
+                    System.nanoTime() - callTime, outcome);
+        }
     }
 
     private void handleTransientException(Throwable ex, int numAttempts, int totalAttempts,
                                           ProceedingJoinPoint pjp, AtomicLong backoffMillis) {
+        retryMetrics.recordTransientError(pjp.getSignature().toShortString(), findSqlState(ex));
+
+        if (numAttempts >= totalAttempts) {
+            return; // Giving up, so no backoff
+        }
+
         if (logger.isWarnEnabled()) {
             logger.warn("Transient data access exception (" + numAttempts + " of max " + totalAttempts + ") "
                     + "detected (retry in " + backoffMillis + " ms) "
@@ -68,6 +94,7 @@ public class RetryableTransactionAspect {
                     + "': " + ex.getMessage());
         }
         if (backoffMillis.get() >= 0) {
+            retryMetrics.recordBackoff(pjp.getSignature().toShortString(), backoffMillis.get());
             try {
                 Thread.sleep(backoffMillis.get());
             } catch (InterruptedException e) {
@@ -76,4 +103,13 @@ public class RetryableTransactionAspect {
             backoffMillis.set(Math.min((long) (backoffMillis.get() * 1.5), 1500));
         }
     }
+
+    private static String findSqlState(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                return ((SQLException) t).getSQLState();
+            }
+        }
+        return null;
+    }
 }
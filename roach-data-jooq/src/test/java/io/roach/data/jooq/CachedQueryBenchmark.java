@@ -0,0 +1,110 @@
+package io.roach.data.jooq;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Record2;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static io.roach.data.jooq.model.Tables.ACCOUNT;
+import static org.jooq.impl.DSL.inline;
+import static org.jooq.impl.DSL.row;
+import static org.jooq.impl.DSL.val;
+import static org.jooq.impl.DSL.values;
+
+/**
+ * Transfer of {@link JooqAccountRepository} against a mock JDBC connection, comparing the
+ * update built and rendered with the DSL on every call ('dsl') to the repository itself
+ * executing the query rendered once ('cached'). No database is needed, so the difference
+ * is the client side cost only. Use {@code -prof gc} for the allocation rate per transfer:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main CachedQueryBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CachedQueryBenchmark {
+    private static final Long FROM_ID = 1L;
+
+    private static final Long TO_ID = 2L;
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"dsl", "cached"})
+    public String strategy;
+
+    private DSLContext dsl;
+
+    private JooqAccountRepository repository;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception {
+        DSLContext create = DSL.using(SQLDialect.POSTGRES);
+        Result<Record1<Long>> updated = create.newResult(ACCOUNT.ID);
+        updated.add(create.newRecord(ACCOUNT.ID).values(FROM_ID));
+        updated.add(create.newRecord(ACCOUNT.ID).values(TO_ID));
+        MockResult[] results = {new MockResult(updated.size(), updated)};
+
+        dsl = DSL.using(new MockConnection(ctx -> results), SQLDialect.POSTGRES);
+
+        repository = new JooqAccountRepository();
+        java.lang.reflect.Field dslField = JooqAccountRepository.class.getDeclaredField("dsl");
+        dslField.setAccessible(true);
+        dslField.set(repository, dsl);
+        repository.init();
+    }
+
+    @Benchmark
+    public boolean transfer() {
+        if ("dsl".equals(strategy)) {
+            return transferDsl(FROM_ID, TO_ID, AMOUNT);
+        }
+        return repository.transfer(FROM_ID, TO_ID, AMOUNT);
+    }
+
+    private boolean transferDsl(Long fromId, Long toId, BigDecimal amount) {
+        Table<Record2<Long, BigDecimal>> legs = values(
+                row(val(fromId), val(amount.negate())),
+                row(val(toId), val(amount)))
+                .as("v", "id", "delta");
+        Field<Long> legId = legs.field("id", Long.class);
+        Field<BigDecimal> legDelta = legs.field("delta", BigDecimal.class);
+
+        List<Long> updated = dsl.update(ACCOUNT)
+                .set(ACCOUNT.BALANCE, ACCOUNT.BALANCE.plus(legDelta))
+                .from(legs)
+                .where(ACCOUNT.ID.eq(legId))
+                .and(ACCOUNT.BALANCE.plus(legDelta).ge(inline(BigDecimal.ZERO)))
+                .returning(ACCOUNT.ID)
+                .fetch()
+                .getValues(ACCOUNT.ID);
+
+        return updated.contains(toId) && updated.contains(fromId);
+    }
+}
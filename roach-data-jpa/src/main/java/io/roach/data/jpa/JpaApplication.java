@@ -2,13 +2,14 @@ package io.roach.data.jpa;
 
 import java.math.BigDecimal;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +18,7 @@ import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.config.EnableHypermediaSupport;
@@ -24,11 +26,14 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+import io.roach.data.support.RetryMetrics;
+
 @EnableHypermediaSupport(type = EnableHypermediaSupport.HypermediaType.HAL)
 @EnableJpaRepositories
 @EnableAspectJAutoProxy(proxyTargetClass = true)
 @EnableTransactionManagement
 @SpringBootApplication
+@Import(RetryMetrics.class)
 public class JpaApplication implements CommandLineRunner {
     protected static final Logger logger = LoggerFactory.getLogger(JpaApplication.class);
 
@@ -44,9 +49,13 @@ public class JpaApplication implements CommandLineRunner {
 
         final Link transferLink = Link.of("http://localhost:9090/transfer{?fromId,toId,amount}");
 
-        final int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        final int concurrency = Arrays.stream(args)
+                .filter(arg -> !arg.startsWith("--"))
+                .findFirst()
+                .map(Integer::parseInt)
+                .orElse(1);
 
-        final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(concurrency);
+        final ExecutorService executorService = Executors.newFixedThreadPool(concurrency);
 
         Deque<Future<Integer>> futures = new ArrayDeque<>();
 
@@ -101,4 +110,3 @@ public class JpaApplication implements CommandLineRunner {
         executorService.shutdownNow();
     }
 }
-
@@ -11,6 +11,7 @@ import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.NestedExceptionUtils;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
@@ -20,12 +21,17 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.annotation.Transactional;
 
+import io.roach.data.support.RetryMetrics;
+
 @Component
 @Aspect
 @Order(Ordered.LOWEST_PRECEDENCE - 1)
 public class RetryableTransactionAspect {
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
+    @Autowired
+    private RetryMetrics retryMetrics;
+
     private final int retryAttempts = 30;
 
     private final int maxBackoff = 15000;
@@ -42,53 +48,68 @@ public class RetryableTransactionAspect {
 
         final Instant callTime = Instant.now();
 
-        do {
-            try {
-                numCalls++;
-                Object rv = pjp.proceed();
-                if (numCalls > 1) {
-                    logger.debug(
-                            "Transient error recovered after " + numCalls + " of " + retryAttempts + " retries ("
-                                    + Duration.between(callTime, Instant.now()).toString() + ")");
-                }
-                return rv;
-            } catch (TransientDataAccessException | TransactionSystemException ex) { // TX abort on commit's
-                Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
-                if (cause instanceof SQLException) {
-                    SQLException sqlException = (SQLException) cause;
-                    if ("40001".equals(sqlException.getSQLState())) { // Transient error code
-                        handleTransientException(sqlException, numCalls, pjp.getSignature().toShortString());
-                        continue;
+        String outcome = RetryMetrics.OUTCOME_FAILURE;
+
+        try {
+            do {
+                try {
+                    numCalls++;
+                    Object rv = pjp.proceed();
+                    outcome = RetryMetrics.OUTCOME_SUCCESS;
+                    if (numCalls > 1) {
+                        logger.debug(
+                                "Transient error recovered after " + numCalls + " of " + retryAttempts + " retries ("
+                                        + Duration.between(callTime, Instant.now()).toString() + ")");
+                    }
+                    return rv;
+                } catch (TransientDataAccessException | TransactionSystemException ex) { // TX abort on commit's
+                    Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
+                    if (cause instanceof SQLException) {
+                        SQLException sqlException = (SQLException) cause;
+                        if ("40001".equals(sqlException.getSQLState())) { // Transient error code
+                            handleTransientException(sqlException, numCalls, pjp.getSignature().toShortString());
+                            continue;
+                        }
                     }
-                }
 
-                throw ex;
-            } catch (UndeclaredThrowableException ex) {
-                Throwable t = ex.getUndeclaredThrowable();
-                while (t instanceof UndeclaredThrowableException) {
-                    t = ((UndeclaredThrowableException) t).getUndeclaredThrowable();
-                }
+                    throw ex;
+                } catch (UndeclaredThrowableException ex) {
+                    Throwable t = ex.getUndeclaredThrowable();
+                    while (t instanceof UndeclaredThrowableException) {
+                        t = ((UndeclaredThrowableException) t).getUndeclaredThrowable();
+                    }
 
-                Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
-                if (cause instanceof SQLException) {
-                    SQLException sqlException = (SQLException) cause;
-                    if ("40001".equals(sqlException.getSQLState())) { // Transient error code
-                        handleTransientException(sqlException, numCalls, pjp.getSignature().toShortString());
-                        continue;
+                    Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
+                    if (cause instanceof SQLException) {
+                        SQLException sqlException = (SQLException) cause;
+                        if ("40001".equals(sqlException.getSQLState())) { // Transient error code
+                            handleTransientException(sqlException, numCalls, pjp.getSignature().toShortString());
+                            continue;
+                        }
                     }
+
+                    throw ex;
                 }
+            } while (numCalls < retryAttempts);
 
-                throw ex;
-            }
-        } while (numCalls < retryAttempts);
+            outcome = RetryMetrics.OUTCOME_GIVE_UP;
 
-        throw new ConcurrencyFailureException("Too many transient errors (" + numCalls + ") for method ["
-                + pjp.getSignature().toShortString() + "]. Giving up!");
+            throw new ConcurrencyFailureException("Too many transient errors (" + numCalls + ") for method ["
+                    + pjp.getSignature().toShortString() + "]. Giving up!");
+        } finally {
+            retryMetrics.recordCompletion(pjp.getSignature().toShortString(), numCalls,
+                    Duration.between(callTime, Instant.now()).toNanos(), outcome);
+        }
     }
 
     private void handleTransientException(SQLException ex, int numCalls, String method) {
+        retryMetrics.recordTransientError(method, ex.getSQLState());
+        if (numCalls >= retryAttempts) {
+            return; // Giving up, so no backoff
+        }
         try {
             long backoffMillis = Math.min((long) (Math.pow(2, numCalls) + Math.random() * 1000), maxBackoff);
+            retryMetrics.recordBackoff(method, backoffMillis);
             if (numCalls <= 1 && logger.isWarnEnabled()) {
                 logger.warn("Transient error detected (backoff {}ms) in call {} to '{}': {}",
                         backoffMillis, numCalls, method, ex.getMessage());
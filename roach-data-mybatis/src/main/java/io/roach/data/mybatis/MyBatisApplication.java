@@ -36,6 +36,8 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+import io.roach.data.support.RetryMetrics;
+
 @EnableAutoConfiguration
 @EnableHypermediaSupport(type = EnableHypermediaSupport.HypermediaType.HAL)
 @EnableAspectJAutoProxy(proxyTargetClass = true)
@@ -44,7 +46,7 @@ import org.springframework.web.client.RestTemplate;
 @EnableTransactionManagement(order = Ordered.LOWEST_PRECEDENCE - 1)
 @Configuration
 @ComponentScan
-@Import(MyBatisJdbcConfiguration.class)
+@Import({MyBatisJdbcConfiguration.class, RetryMetrics.class})
 public class MyBatisApplication implements CommandLineRunner {
     protected static final Logger logger = LoggerFactory.getLogger(MyBatisApplication.class);
 
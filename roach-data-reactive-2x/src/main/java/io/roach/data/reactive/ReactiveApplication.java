@@ -22,6 +22,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.r2dbc.connectionfactory.init.ConnectionFactoryInitializer;
 import org.springframework.data.r2dbc.connectionfactory.init.ResourceDatabasePopulator;
@@ -33,12 +34,14 @@ import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
 import io.r2dbc.spi.ConnectionFactory;
+import io.roach.data.support.RetryMetrics;
 
 @EnableHypermediaSupport(type = EnableHypermediaSupport.HypermediaType.HAL)
 @EnableAspectJAutoProxy(proxyTargetClass = true)
 @EnableTransactionManagement
 @SpringBootApplication
 @EnableR2dbcRepositories
+@Import(RetryMetrics.class)
 public class ReactiveApplication implements CommandLineRunner {
     protected static final Logger logger = LoggerFactory.getLogger(ReactiveApplication.class);
 
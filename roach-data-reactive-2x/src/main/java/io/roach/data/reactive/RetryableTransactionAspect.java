@@ -13,6 +13,7 @@ import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.NestedExceptionUtils;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
@@ -25,6 +26,7 @@ import org.springframework.util.Assert;
 
 import io.r2dbc.postgresql.api.ErrorDetails;
 import io.r2dbc.postgresql.api.PostgresqlException;
+import io.roach.data.support.RetryMetrics;
 import reactor.core.publisher.Mono;
 
 @Component
@@ -33,6 +35,9 @@ import reactor.core.publisher.Mono;
 public class RetryableTransactionAspect {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
+    @Autowired
+    private RetryMetrics retryMetrics;
+
     private int retryAttempts = 30;
 
     private int maxBackoff = 15000;
@@ -61,48 +66,59 @@ public class RetryableTransactionAspect {
 
         final Instant callTime = Instant.now();
 
-        do {
-            final Throwable throwable;
-            try {
-                methodCalls++;
-
-                Object rv = pjp.proceed();
+        String outcome = RetryMetrics.OUTCOME_FAILURE;
 
-                if (methodCalls > 1) {
-                    handleExceptionRecovery(retryCause, methodCalls, pjp.getSignature(),
-                            Duration.between(callTime, Instant.now()));
+        try {
+            do {
+                final Throwable throwable;
+                try {
+                    methodCalls++;
+
+                    Object rv = pjp.proceed();
+
+                    if (methodCalls > 1) {
+                        handleExceptionRecovery(retryCause, methodCalls, pjp.getSignature(),
+                                Duration.between(callTime, Instant.now()));
+                    }
+
+                    // Anti-reactive but \_(ツ)_/¯
+                    if (rv instanceof Mono<?>) {
+                        Object result = ((Mono<?>) rv).block();
+                        outcome = RetryMetrics.OUTCOME_SUCCESS;
+                        return result;
+                    } else {
+                        throw new AssertionError("Unexpected Mono type");
+                    }
+                } catch (UndeclaredThrowableException ex) {
+                    throwable = ex.getUndeclaredThrowable();
+                } catch (DataAccessException ex) {
+                    throwable = ex;
                 }
 
-                // Anti-reactive but \_(ツ)_/¯
-                if (rv instanceof Mono<?>) {
-                    return ((Mono<?>)rv).block();
+                Throwable cause = NestedExceptionUtils.getMostSpecificCause(throwable);
+                if (cause instanceof PostgresqlException) {
+                    retryCause = ((PostgresqlException) cause).getErrorDetails();
+                    if (isRetryable(retryCause)) {
+                        handleTransientException(retryCause, methodCalls, pjp.getSignature());
+                    } else {
+                        handleNonTransientException(retryCause);
+                        throw throwable;
+                    }
                 } else {
-                    throw new AssertionError("Unexpected Mono type");
-                }
-            } catch (UndeclaredThrowableException ex) {
-                throwable = ex.getUndeclaredThrowable();
-            } catch (DataAccessException ex) {
-                throwable = ex;
-            }
-
-            Throwable cause = NestedExceptionUtils.getMostSpecificCause(throwable);
-            if (cause instanceof PostgresqlException) {
-                retryCause = ((PostgresqlException) cause).getErrorDetails();
-                if (isRetryable(retryCause)) {
-                    handleTransientException(retryCause, methodCalls, pjp.getSignature());
-                } else {
-                    handleNonTransientException(retryCause);
                     throw throwable;
                 }
-            } else {
-                throw throwable;
-            }
-        } while (methodCalls - 1 < retryAttempts);
+            } while (methodCalls - 1 < retryAttempts);
+
+            outcome = RetryMetrics.OUTCOME_GIVE_UP;
 
-        throw new ConcurrencyFailureException(
-                "Too many transient SQL errors (" + methodCalls + ") for method ["
-                        + pjp.getSignature().toShortString()
-                        + "]. Giving up!");
+            throw new ConcurrencyFailureException(
+                    "Too many transient SQL errors (" + methodCalls + ") for method ["
+                            + pjp.getSignature().toShortString()
+                            + "]. Giving up!");
+        } finally {
+            retryMetrics.recordCompletion(pjp.getSignature().toShortString(), methodCalls,
+                    Duration.between(callTime, Instant.now()).toNanos(), outcome);
+        }
     }
 
     protected boolean isRetryable(ErrorDetails details) {
@@ -116,8 +132,13 @@ public class RetryableTransactionAspect {
     protected void handleTransientException(ErrorDetails details,
                                             int methodCalls,
                                             Signature signature) {
+        retryMetrics.recordTransientError(signature.toShortString(), details.getCode());
+        if (methodCalls - 1 >= retryAttempts) {
+            return; // Giving up, so no backoff
+        }
         try {
             long backoffMillis = Math.min((long) (Math.pow(2, methodCalls) + Math.random() * 1000), maxBackoff);
+            retryMetrics.recordBackoff(signature.toShortString(), backoffMillis);
             if (logger.isWarnEnabled()) {
                 logger.warn("Transient SQL error ({}) for method [{}] attempt ({}) backoff {} ms: {}",
                         details.getCode(),
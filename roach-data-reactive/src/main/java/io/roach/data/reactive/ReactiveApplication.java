@@ -9,20 +9,26 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.config.EnableHypermediaSupport;
@@ -33,15 +39,20 @@ import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
 import io.r2dbc.spi.ConnectionFactory;
+import io.roach.data.support.RetryMetrics;
 
 @EnableHypermediaSupport(type = EnableHypermediaSupport.HypermediaType.HAL)
 @EnableAspectJAutoProxy(proxyTargetClass = true)
 @EnableTransactionManagement
 @SpringBootApplication
 @EnableR2dbcRepositories
+@Import(RetryMetrics.class)
 public class ReactiveApplication implements CommandLineRunner {
     protected static final Logger logger = LoggerFactory.getLogger(ReactiveApplication.class);
 
+    @Autowired
+    private Environment environment;
+
     public static void main(String[] args) {
         new SpringApplicationBuilder(ReactiveApplication.class)
                 .web(WebApplicationType.SERVLET)
@@ -72,7 +83,10 @@ public class ReactiveApplication implements CommandLineRunner {
         }
 
         final Link transferLink = Link.of("http://localhost:9090/transfer{?fromId,toId,amount}");
-        final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(concurrency);
+        final ExecutorService executorService = Threading.VIRTUAL.isActive(environment)
+                ? null : Executors.newFixedThreadPool(concurrency);
+        final Executor executor = executorService != null
+                ? executorService : new VirtualThreadTaskExecutor("client-");
         final Deque<CompletableFuture<Integer>> futures = new ArrayDeque<>();
 
         IntStream.rangeClosed(1, concurrency).forEach(value -> {
@@ -105,7 +119,7 @@ public class ReactiveApplication implements CommandLineRunner {
                 }
 
                 return errors;
-            });
+            }, executor);
 
             futures.add(f);
         });
@@ -127,7 +141,9 @@ public class ReactiveApplication implements CommandLineRunner {
         logger.info("All client workers finished with {} errors and server keeps running. Have a nice day!",
                 totalErrors);
 
-        executorService.shutdownNow();
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
     }
 }
 
@@ -0,0 +1,140 @@
+package io.roach.data.support;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Aggregates the outcome of concurrent transfers in completion order rather than submission
+ * order, so one slow transfer doesn't hold up the others. Reports progress with throughput and
+ * latency percentiles at a fixed interval while awaiting completion.
+ */
+public class CompletionAggregator {
+    private final CompletionService<BigDecimal> completionService;
+
+    private final Histogram histogram = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+
+    private final LongAdder success = new LongAdder();
+
+    private final LongAdder fail = new LongAdder();
+
+    // In cents
+    private final LongAdder turnover = new LongAdder();
+
+    private final long startTime = System.nanoTime();
+
+    private int submitted;
+
+    public CompletionAggregator(ExecutorService executorService) {
+        this.completionService = new ExecutorCompletionService<>(executorService);
+    }
+
+    /**
+     * Submit a transfer returning its turnover.
+     */
+    public void submit(Callable<BigDecimal> task) {
+        completionService.submit(() -> {
+            final long callTime = System.nanoTime();
+            try {
+                return task.call();
+            } finally {
+                histogram.recordValue(Math.min(histogram.getHighestTrackableValue(),
+                        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - callTime)));
+            }
+        });
+        submitted++;
+    }
+
+    /**
+     * Keep the given number of transfers in flight until the duration has elapsed,
+     * submitting a new one as soon as one completes.
+     */
+    public void runFor(Duration duration, int concurrency, Supplier<Callable<BigDecimal>> taskSupplier,
+                       long reportInterval, TimeUnit unit) {
+        final long endTime = System.nanoTime() + duration.toNanos();
+
+        for (int i = 0; i < concurrency; i++) {
+            submit(taskSupplier.get());
+        }
+
+        awaitCompletion(reportInterval, unit, () -> {
+            if (System.nanoTime() < endTime) {
+                submit(taskSupplier.get());
+            }
+        });
+    }
+
+    /**
+     * Await completion of all submitted transfers.
+     */
+    public void awaitCompletion(long reportInterval, TimeUnit unit) {
+        awaitCompletion(reportInterval, unit, () -> {
+        });
+    }
+
+    private void awaitCompletion(long reportInterval, TimeUnit unit, Runnable onCompletion) {
+        long nextReport = System.nanoTime() + unit.toNanos(reportInterval);
+
+        for (int completed = 0; completed < submitted; ) {
+            try {
+                Future<BigDecimal> future = completionService.poll(
+                        Math.max(0, nextReport - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (future != null) {
+                    completed++;
+                    try {
+                        turnover.add(future.get().movePointRight(2).longValue());
+                        success.increment();
+                    } catch (ExecutionException e) {
+                        e.getCause().printStackTrace();
+                        fail.increment();
+                    }
+                    onCompletion.run();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (System.nanoTime() >= nextReport) {
+                System.out.println(progress());
+                nextReport += unit.toNanos(reportInterval);
+            }
+        }
+
+        System.out.println(progress());
+    }
+
+    private String progress() {
+        long completed = success.sum() + fail.sum();
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+        return String.format("%,8d/%d done (%.1f ops/s) latency ms p50: %.2f p90: %.2f p99: %.2f max: %.2f",
+                completed, submitted, completed / elapsedSeconds,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    public long getSuccess() {
+        return success.sum();
+    }
+
+    public long getFail() {
+        return fail.sum();
+    }
+
+    public BigDecimal getTurnover() {
+        return BigDecimal.valueOf(turnover.sum(), 2);
+    }
+}
@@ -0,0 +1,114 @@
+package io.roach.data.support;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically checks the balance invariant (the total balance of all accounts is
+ * constant) while transfers are running. Each check is a single aggregate query at a
+ * historical timestamp, which reads a consistent snapshot without blocking or aborting
+ * concurrent transfers.
+ */
+public class InvariantChecker implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(InvariantChecker.class);
+
+    private final DataSource dataSource;
+
+    private final BigDecimal expectedTotal;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "invariant-checker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong checks = new AtomicLong();
+
+    private final AtomicLong violations = new AtomicLong();
+
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    public InvariantChecker(DataSource dataSource, BigDecimal expectedTotal) {
+        this.dataSource = dataSource;
+        this.expectedTotal = expectedTotal;
+    }
+
+    /**
+     * @param interval time between checks, or zero to disable checks
+     */
+    public InvariantChecker start(Duration interval) {
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("Negative check interval");
+        }
+        if (interval.isZero()) {
+            logger.info("Balance invariant checks disabled");
+            return this;
+        }
+        scheduler.scheduleWithFixedDelay(this::check, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    private void check() {
+        final long startTime = System.nanoTime();
+        try {
+            BigDecimal total;
+
+            try (Connection conn = dataSource.getConnection()) {
+                // Historical reads are implicit transactions
+                conn.setAutoCommit(true);
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT sum(balance) FROM account AS OF SYSTEM TIME '-1s'");
+                     ResultSet res = ps.executeQuery()) {
+                    if (!res.next()) {
+                        throw new SQLException("Empty result");
+                    }
+                    total = res.getBigDecimal(1);
+                }
+            }
+
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+            checks.incrementAndGet();
+
+            if (total == null || total.compareTo(expectedTotal) != 0) {
+                violations.incrementAndGet();
+                logger.error("Balance invariant violation! Expected total {} got {} (check took {} ms)",
+                        expectedTotal, total, latencyMillis);
+            } else {
+                logger.info("Balance invariant holds: {} (check took {} ms)", total, latencyMillis);
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Balance invariant check failed", e);
+        }
+    }
+
+    public long getChecks() {
+        return checks.get();
+    }
+
+    public long getViolations() {
+        return violations.get();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        logger.info("Invariant checks: {} violations: {} max check latency: {} ms",
+                checks.get(), violations.get(), maxLatencyMillis.get());
+    }
+}
@@ -0,0 +1,82 @@
+package io.roach.data.support;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters for transaction retries, tagged by the join point signature
+ * of the retried method. Exposed through the metrics actuator endpoint, for example:
+ * <pre>
+ * /actuator/metrics/roach.retry.latency?tag=method:AccountController.transfer(..)
+ * </pre>
+ */
+@Component
+public class RetryMetrics {
+    public static final String OUTCOME_SUCCESS = "success";
+
+    public static final String OUTCOME_FAILURE = "failure";
+
+    public static final String OUTCOME_GIVE_UP = "give-up";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    /**
+     * Record a transient error by SQL state. This includes the last error of a call that
+     * gives up, so the error count is the retry count plus the number of give-ups.
+     */
+    public void recordTransientError(String method, String sqlState) {
+        registry.counter("roach.retry.errors",
+                "method", method,
+                "sqlstate", sqlState != null ? sqlState : "unknown").increment();
+    }
+
+    /**
+     * Record time spent sleeping in backoff before the next attempt.
+     */
+    public void recordBackoff(String method, long backoffMillis) {
+        Timer.builder("roach.retry.backoff")
+                .description("Time spent in backoff between attempts")
+                .tag("method", method)
+                .register(registry)
+                .record(backoffMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record the completion of a retryable method call, including all attempts.
+     *
+     * @param method the join point signature
+     * @param attempts total number of attempts including the first one
+     * @param elapsedNanos end-to-end time including retries and backoff
+     * @param outcome one of success, failure or give-up
+     */
+    public void recordCompletion(String method, int attempts, long elapsedNanos, String outcome) {
+        DistributionSummary.builder("roach.retry.attempts")
+                .description("Number of attempts per call")
+                .tag("method", method)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(attempts);
+
+        if (attempts > 1) {
+            registry.counter("roach.retry.retries", "method", method).increment(attempts - 1);
+        }
+
+        if (OUTCOME_GIVE_UP.equals(outcome)) {
+            registry.counter("roach.retry.giveups", "method", method).increment();
+        }
+
+        Timer.builder("roach.retry.latency")
+                .description("End-to-end latency including retries")
+                .tags("method", method, "outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}